@@ -0,0 +1,185 @@
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * Gives every borough of a dataset a dense int ID (its position in the data) and
+ * maps between IDs, names and the polygon keys of the map through arrays: names
+ * and polygon keys are found by binary search in sorted arrays, and everything
+ * about an ID is read at that index. Names are looked up after normalising them,
+ * so "Hammersmith and Fulham", "hammersmith & fulham" and "Hammersmith And Fulham"
+ * are the same borough. Once a name has been turned into an ID, comparing boroughs
+ * is an int compare.
+ *
+ * The 33 London boroughs and their polygon keys are built in; london() gives a
+ * registry of just those, for use before any data is loaded.
+ */
+public final class BoroughRegistry {
+
+    // the London boroughs as spelled in the csv file, with the key of their polygon on the map
+    private static final String[][] LONDON_BOROUGHS = {
+        {"Barking And Dagenham", "BARK"}, {"Barnet", "BARN"}, {"Bexley", "BEXL"}, {"Brent", "BREN"},
+        {"Bromley", "BROM"}, {"Camden", "CAMD"}, {"City Of London", "CITY"}, {"Croydon", "CROY"},
+        {"Ealing", "EALI"}, {"Enfield", "ENFI"}, {"Greenwich", "GWCH"}, {"Hackney", "HACK"},
+        {"Hammersmith And Fulham", "HAMM"}, {"Haringey", "HRGY"}, {"Harrow", "HRRW"}, {"Havering", "HAVE"},
+        {"Hillingdon", "HILL"}, {"Hounslow", "HOUN"}, {"Islington", "ISLI"}, {"Kensington And Chelsea", "KENS"},
+        {"Kingston Upon Thames", "KING"}, {"Lambeth", "LAMB"}, {"Lewisham", "LEWS"}, {"Merton", "MERT"},
+        {"Newham", "NEWH"}, {"Redbridge", "REDB"}, {"Richmond Upon Thames", "RICH"}, {"Southwark", "STHW"},
+        {"Sutton", "SUTT"}, {"Tower Hamlets", "TOWH"}, {"Waltham Forest", "WALT"}, {"Wandsworth", "WAND"},
+        {"Westminster", "WSTM"}
+    };
+    private static final String[] LONDON_NAMES; // normalised London names, sorted
+    private static final String[] LONDON_KEYS; // polygon key of each name in LONDON_NAMES
+    private static final String[] POLYGON_KEYS; // every polygon key, sorted
+    private static final BoroughRegistry LONDON;
+
+    static {
+        String[] names = new String[LONDON_BOROUGHS.length];
+        String[] normalised = new String[LONDON_BOROUGHS.length];
+        for (int i = 0; i < LONDON_BOROUGHS.length; i++) {
+            names[i] = LONDON_BOROUGHS[i][0];
+            normalised[i] = normalise(names[i]);
+        }
+        int[] order = sortedOrder(normalised);
+        LONDON_NAMES = new String[order.length];
+        LONDON_KEYS = new String[order.length];
+        for (int i = 0; i < order.length; i++) {
+            LONDON_NAMES[i] = normalised[order[i]];
+            LONDON_KEYS[i] = LONDON_BOROUGHS[order[i]][1];
+        }
+        POLYGON_KEYS = LONDON_KEYS.clone();
+        Arrays.sort(POLYGON_KEYS);
+        LONDON = new BoroughRegistry(names);
+    }
+
+    private final String[] names; // name of each ID, as spelled in the data
+    private final String[] polygonKeys; // polygon key of each ID, or null if it has no polygon
+    private final String[] sortedNames; // the normalised names, sorted
+    private final int[] idsBySortedName; // ID of each name in sortedNames
+    private final int[] idsByPolygon; // ID of the borough drawn by each polygon in POLYGON_KEYS, or -1
+
+    /**
+     * Creates a registry whose IDs are the positions of the names.
+     * @param names the borough names, one per ID
+     */
+    public BoroughRegistry(String[] names) {
+        this.names = names.clone();
+        this.polygonKeys = new String[names.length];
+        this.idsByPolygon = new int[POLYGON_KEYS.length];
+        Arrays.fill(idsByPolygon, -1);
+        String[] normalised = new String[names.length];
+        for (int id = 0; id < names.length; id++) {
+            normalised[id] = normalise(names[id]);
+            int london = Arrays.binarySearch(LONDON_NAMES, normalised[id]);
+            if (london >= 0) {
+                polygonKeys[id] = LONDON_KEYS[london];
+                idsByPolygon[Arrays.binarySearch(POLYGON_KEYS, polygonKeys[id])] = id;
+            }
+        }
+        idsBySortedName = sortedOrder(normalised);
+        sortedNames = new String[names.length];
+        for (int i = 0; i < names.length; i++) {
+            sortedNames[i] = normalised[idsBySortedName[i]];
+            if (i > 0 && sortedNames[i].equals(sortedNames[i - 1])) {
+                throw new IllegalArgumentException("Borough listed twice: " + names[idsBySortedName[i]]);
+            }
+        }
+    }
+
+    // the positions of the strings, in the order the strings sort in
+    private static int[] sortedOrder(String[] strings) {
+        return IntStream.range(0, strings.length).boxed()
+            .sorted(Comparator.comparing(i -> strings[i]))
+            .mapToInt(Integer::intValue)
+            .toArray();
+    }
+
+    /**
+     * @return a registry of the 33 London boroughs, in alphabetical order
+     */
+    public static BoroughRegistry london() {
+        return LONDON;
+    }
+
+    /**
+     * Reduces a borough name to the form used for lookups: lower case, "&amp;" read as
+     * "and", and everything but letters and digits dropped.
+     * @param name a borough name in any spelling
+     * @return the normalised name
+     */
+    public static String normalise(String name) {
+        String lower = name.toLowerCase(Locale.ROOT).replace("&", "and");
+        StringBuilder normalised = new StringBuilder(lower.length());
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                normalised.append(c);
+            }
+        }
+        return normalised.toString();
+    }
+
+    /**
+     * @param name a borough name in any spelling
+     * @return the polygon key of the London borough, or null if it is not one
+     */
+    public static String polygonKeyOfName(String name) {
+        if (name == null) {
+            return null;
+        }
+        int london = Arrays.binarySearch(LONDON_NAMES, normalise(name));
+        return london < 0 ? null : LONDON_KEYS[london];
+    }
+
+    /**
+     * @return the number of boroughs
+     */
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * @param name a borough name in any spelling
+     * @return the ID of the borough, or -1 if it is not in the registry
+     */
+    public int idOf(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int position = Arrays.binarySearch(sortedNames, normalise(name));
+        return position < 0 ? -1 : idsBySortedName[position];
+    }
+
+    /**
+     * @param polygonKey the key of a polygon on the map
+     * @return the ID of the borough drawn by that polygon, or -1 if there is none
+     */
+    public int idOfPolygon(String polygonKey) {
+        int position = polygonKey == null ? -1 : Arrays.binarySearch(POLYGON_KEYS, polygonKey);
+        return position < 0 ? -1 : idsByPolygon[position];
+    }
+
+    /**
+     * @param id a borough ID
+     * @return the name of the borough
+     */
+    public String getName(int id) {
+        return names[id];
+    }
+
+    /**
+     * @param id a borough ID
+     * @return the key of the borough's polygon on the map, or null if it has none
+     */
+    public String getPolygonKey(int id) {
+        return polygonKeys[id];
+    }
+
+    /**
+     * @return the borough names in ID order
+     */
+    public String[] getNames() {
+        return names.clone();
+    }
+}
@@ -0,0 +1,37 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+
+// unit test to check borough lookups across spellings, IDs and polygon keys
+class BoroughRegistryTest {
+
+    // creates test to ensure spelling variants of a borough find the same ID and polygon
+    @Test
+    public void variantsFindSameBorough() {
+        BoroughRegistry london = BoroughRegistry.london();
+        int id = london.idOf("Hammersmith And Fulham");
+
+        assertEquals(33, london.size(), "Number of boroughs is incorrect");
+        assertEquals(id, london.idOf("Hammersmith and Fulham"), "Lower case 'and' is not recognised");
+        assertEquals(id, london.idOf("hammersmith & fulham"), "Ampersand is not recognised");
+        assertEquals(id, london.idOfPolygon("HAMM"), "Polygon lookup is incorrect");
+        assertEquals("HAMM", london.getPolygonKey(id), "Polygon key is incorrect");
+        assertEquals("KING", BoroughMapper.getPolygonKey("Kingston upon Thames"), "Mapped polygon key is incorrect");
+        assertEquals("Ealing", BoroughMapper.getBoroughFullName("EALI"), "Mapped borough name is incorrect");
+        assertEquals(-1, london.idOf("Gotham"), "Unknown borough should not be found");
+    }
+
+    // creates test to ensure rows spelled differently are stored under one borough ordinal
+    @Test
+    public void tableMergesSpellings() {
+        CovidTable table = CovidTable.fromRecords(List.of(
+            new CovidData(18000, "Kingston Upon Thames", 0, 0, 0, 0, 0, 0, 1, 1, 0, 0),
+            new CovidData(18001, "Kingston upon Thames", 0, 0, 0, 0, 0, 0, 2, 3, 0, 0),
+            new CovidData(18001, "Camden", 0, 0, 0, 0, 0, 0, 4, 4, 0, 0)));
+
+        assertEquals(2, table.getBoroughCount(), "Number of boroughs is incorrect");
+        assertEquals(table.getBorough(0), table.getBorough(1), "Spellings should share an ordinal");
+        assertEquals(table.getBorough(0), table.indexOfBorough("KINGSTON UPON THAMES"), "Borough lookup is incorrect");
+        assertEquals("KING", table.getBoroughRegistry().getPolygonKey(table.getBorough(0)), "Polygon key is incorrect");
+    }
+}
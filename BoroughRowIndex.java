@@ -0,0 +1,92 @@
+import java.util.Arrays;
+
+/**
+ * The rows of one borough over a date range, with the order of those rows sorted
+ * by each metric, both ways. Each order is an int array of positions in the slice,
+ * sorted once on primitive keys the first time it is asked for and then kept, so
+ * showing the slice in another order is a lookup rather than a sort. Rows with equal
+ * values stay in date order whichever way they are sorted.
+ */
+public final class BoroughRowIndex {
+
+    private final RowSlice rows; // the slice's rows, in date order
+    private final int[][] orders = new int[CovidMetric.count()][]; // ascending positions per metric, made on first use
+    private final int[][] descendingOrders = new int[CovidMetric.count()][]; // descending positions per metric, made on first use
+    private final int[] dateOrder; // positions in date order, which is the slice's own order
+    private int[] descendingDateOrder; // positions from the latest date to the earliest, made on first use
+
+    /**
+     * @param rows the rows of the slice, in date order
+     */
+    public BoroughRowIndex(RowSlice rows) {
+        this.rows = rows;
+        this.dateOrder = new int[rows.size()];
+        for (int i = 0; i < dateOrder.length; i++) {
+            dateOrder[i] = i;
+        }
+    }
+
+    /**
+     * @return the table the rows belong to
+     */
+    public CovidTable getTable() {
+        return rows.getTable();
+    }
+
+    /**
+     * @return the number of rows in the slice
+     */
+    public int size() {
+        return rows.size();
+    }
+
+    /**
+     * @param position a position in the slice
+     * @return the table row at that position
+     */
+    public int rowAt(int position) {
+        return rows.rowAt(position);
+    }
+
+    /**
+     * Returns the positions of the slice sorted by a metric.
+     * Rows with equal values keep their date order, in either direction.
+     * @param metric the metric to sort by, or null for date order
+     * @param descending true for the largest values (or latest dates) first
+     * @return the sorted positions (shared, so it must not be modified)
+     */
+    public synchronized int[] order(CovidMetric metric, boolean descending) {
+        if (metric == null) {
+            if (!descending) {
+                return dateOrder;
+            }
+            if (descendingDateOrder == null) {
+                descendingDateOrder = sort(rows.getTable().getEpochDayColumn(), true);
+            }
+            return descendingDateOrder;
+        }
+        int[][] cache = descending ? descendingOrders : orders;
+        int[] order = cache[metric.ordinal()];
+        if (order == null) {
+            order = sort(rows.getTable().getColumn(metric), descending);
+            cache[metric.ordinal()] = order;
+        }
+        return order;
+    }
+
+    // sorts value and position packed into one long, so the sort is on primitives and ties stay in position order;
+    // for a descending order the value is flipped (~value never overflows, unlike -value)
+    private int[] sort(int[] column, boolean descending) {
+        long[] keys = new long[rows.size()];
+        for (int i = 0; i < keys.length; i++) {
+            int value = column[rows.rowAt(i)];
+            keys[i] = ((long) (descending ? ~value : value) << 32) | i;
+        }
+        Arrays.sort(keys);
+        int[] order = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            order[i] = (int) keys[i];
+        }
+        return order;
+    }
+}
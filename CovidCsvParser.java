@@ -0,0 +1,341 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Parses rows of the COVID csv file straight from bytes into table columns.
+ * Dates and integers are decoded in place without creating a String per field,
+ * and each borough name is only turned into a String (and looked up in the
+ * table's name list) the first time it is seen.
+ * Empty fields count as missing and are stored as 0, like the old opencsv path.
+ * A parser keeps a small name cache, so each thread should use its own instance.
+ */
+public class CovidCsvParser {
+
+    private static final int BLOCK_SIZE = 1 << 20; // bytes copied out of a mapped buffer at a time
+    private static final int INCOMPLETE = -1; // parseLine result when the line break has not been reached yet
+
+    private byte[] block = new byte[BLOCK_SIZE]; // scratch copy of the bytes being parsed
+
+    private final int[] values = new int[CovidMetric.count()]; // reused for every row
+    private final NameCache boroughNames = new NameCache();
+
+    /**
+     * Returns the position just after the first line break at or after start.
+     * @param buffer the bytes to search
+     * @param start the position to start from
+     * @param end the position to stop at (exclusive)
+     * @return the start of the next line, or end if there is no line break
+     */
+    public static int nextLineStart(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == '\n') {
+                return i + 1;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Parses every complete line of a (memory-mapped) buffer in [start, end).
+     * The bytes are copied out a block at a time into a reused array, which is much
+     * cheaper to scan than reading the mapped buffer one byte at a time.
+     * If endOfInput is false, a last line without a line break is left unparsed.
+     * @param source the bytes to parse
+     * @param start the start of the first line
+     * @param end the end of the bytes to parse (exclusive)
+     * @param endOfInput true if there are no more bytes after end
+     * @param builder the table the rows are added to
+     * @return the position just after the last line that was parsed
+     */
+    public int parse(ByteBuffer source, int start, int end, boolean endOfInput, CovidTable.Builder builder) {
+        ByteBuffer view = source.duplicate();
+        int position = start;
+        while (position < end) {
+            int length = Math.min(block.length, end - position);
+            boolean lastBlock = position + length == end;
+            view.position(position);
+            view.get(block, 0, length);
+            int parsed = parse(block, 0, length, lastBlock && endOfInput, builder);
+            position += parsed;
+            if (parsed < length) {
+                if (lastBlock) {
+                    return position; // incomplete last line, left for the caller
+                }
+                if (parsed == 0) {
+                    block = Arrays.copyOf(block, block.length * 2); // a line longer than the block
+                }
+            }
+        }
+        return position;
+    }
+
+    /**
+     * Parses every complete line in [start, end) and adds it to the builder.
+     * If endOfInput is false, a last line without a line break is left unparsed
+     * so that the caller can carry it over to the next block of bytes.
+     * @param buffer the bytes to parse
+     * @param start the start of the first line
+     * @param end the end of the bytes to parse (exclusive)
+     * @param endOfInput true if there are no more bytes after end
+     * @param builder the table the rows are added to
+     * @return the position just after the last line that was parsed
+     */
+    public int parse(byte[] buffer, int start, int end, boolean endOfInput, CovidTable.Builder builder) {
+        int lineStart = start;
+        while (lineStart < end) {
+            int next = parseLine(buffer, lineStart, end, endOfInput, builder);
+            if (next == INCOMPLETE) {
+                return lineStart; // incomplete line, the caller will hand it back with more bytes
+            }
+            lineStart = next;
+        }
+        return end;
+    }
+
+    /**
+     * Parses the line starting at start in a single pass and adds it to the builder.
+     * Nothing is added (and nothing is validated past the available bytes) if the
+     * bytes run out before the line break and more input is still to come.
+     * @return the start of the next line, or INCOMPLETE
+     */
+    private int parseLine(byte[] buffer, int start, int end, boolean endOfInput, CovidTable.Builder builder) {
+        int dateEnd = fieldEnd(buffer, start, end);
+        if (dateEnd == end && !endOfInput) {
+            return INCOMPLETE;
+        }
+        int dateTextEnd = trimEnd(buffer, start, dateEnd);
+        if (dateTextEnd == start && (dateEnd == end || buffer[dateEnd] == '\n')) {
+            return Math.min(dateEnd + 1, end); // blank line
+        }
+        long epochDay = parseDate(buffer, start, dateTextEnd);
+        if (dateEnd == end || buffer[dateEnd] != ',') {
+            throw new IllegalArgumentException("Missing borough after " + text(buffer, start, dateTextEnd));
+        }
+
+        int boroughStart = dateEnd + 1;
+        int boroughEnd = fieldEnd(buffer, boroughStart, end);
+        if (boroughEnd == end && !endOfInput) {
+            return INCOMPLETE;
+        }
+        int borough = boroughNames.get(buffer, boroughStart, trimEnd(buffer, boroughStart, boroughEnd), builder);
+
+        // metric columns follow the borough, in CovidMetric order
+        int position = boroughEnd;
+        for (int m = 0; m < values.length; m++) {
+            if (position < end && buffer[position] == ',') {
+                position = parseInt(buffer, position + 1, end, m);
+                if (position == end && !endOfInput) {
+                    return INCOMPLETE;
+                }
+            } else {
+                values[m] = 0; // short line, the trailing columns are missing
+            }
+        }
+        while (position < end && buffer[position] != '\n') {
+            position++; // ignore any extra columns
+        }
+        if (position == end && !endOfInput) {
+            return INCOMPLETE;
+        }
+        builder.add(epochDay, borough, values);
+        return Math.min(position + 1, end);
+    }
+
+    // end of the field starting at start: the next comma or line break outside quotes, or end
+    private static int fieldEnd(byte[] buffer, int start, int end) {
+        boolean quoted = false;
+        for (int i = start; i < end; i++) {
+            byte b = buffer[i];
+            if (b == '"') {
+                quoted = !quoted;
+            } else if ((b == ',' || b == '\n') && !quoted) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    // drops trailing spaces and the \r of windows line endings from [start, end)
+    private static int trimEnd(byte[] buffer, int start, int end) {
+        while (end > start && (buffer[end - 1] == ' ' || buffer[end - 1] == '\r')) {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Decodes the integer field starting at start into values[metric], ignoring spaces.
+     * An empty field is missing and stored as 0.
+     * @return the position of the comma or line break after the field (or end)
+     */
+    private int parseInt(byte[] buffer, int start, int end, int metric) {
+        int position = start;
+        while (position < end && buffer[position] == ' ') {
+            position++;
+        }
+        boolean negative = false;
+        if (position < end && (buffer[position] == '-' || buffer[position] == '+')) {
+            negative = buffer[position] == '-';
+            position++;
+        }
+        int digitsStart = position;
+        long value = 0;
+        while (position < end) {
+            int digit = buffer[position] - '0';
+            if (digit < 0 || digit > 9) {
+                break;
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Number too large: " + text(buffer, start, position + 1));
+            }
+            position++;
+        }
+        int digitsEnd = position;
+        while (position < end && (buffer[position] == ' ' || buffer[position] == '\r')) {
+            position++;
+        }
+        if (position < end && buffer[position] != ',' && buffer[position] != '\n') {
+            throw new NumberFormatException("Not a number: " + text(buffer, start, fieldEnd(buffer, start, end)));
+        }
+        if (digitsStart == digitsEnd) {
+            if (digitsStart != start && buffer[digitsStart - 1] != ' ' && position != end) {
+                throw new NumberFormatException("Not a number: " + text(buffer, start, position));
+            }
+            values[metric] = 0; // missing value
+            return position;
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Number too large: " + text(buffer, start, position));
+        }
+        values[metric] = (int) value;
+        return position;
+    }
+
+    /**
+     * Decodes an ISO yyyy-MM-dd date into an epoch day without creating any objects.
+     */
+    private static long parseDate(byte[] buffer, int start, int end) {
+        if (end - start != 10 || buffer[start + 4] != '-' || buffer[start + 7] != '-') {
+            throw new IllegalArgumentException("Not an ISO date: " + text(buffer, start, end));
+        }
+        int year = digits(buffer, start, 4);
+        int month = digits(buffer, start + 5, 2);
+        int day = digits(buffer, start + 8, 2);
+        if (month < 1 || month > 12 || day < 1 || day > 31) {
+            throw new IllegalArgumentException("Not a valid date: " + text(buffer, start, end));
+        }
+        return epochDay(year, month, day);
+    }
+
+    private static int digits(byte[] buffer, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IllegalArgumentException("Not a date: " + text(buffer, start, start + count));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    /**
+     * Days since 1970-01-01 of a proleptic Gregorian date (same result as LocalDate.toEpochDay).
+     */
+    static long epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return (long) era * 146097 + dayOfEra - 719468;
+    }
+
+    private static String text(byte[] buffer, int start, int end) {
+        return new String(buffer, start, Math.max(0, end - start), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Maps the raw bytes of a name field to the builder's ordinal for that name,
+     * creating each distinct String only once.
+     */
+    private static final class NameCache {
+        private byte[][] keys = new byte[64][];
+        private int[] ordinals = new int[64];
+        private int size;
+        private CovidTable.Builder owner; // ordinals are only valid for the builder they came from
+
+        int get(byte[] buffer, int start, int end, CovidTable.Builder builder) {
+            if (builder != owner) {
+                keys = new byte[64][];
+                ordinals = new int[64];
+                size = 0;
+                owner = builder;
+            }
+            int length = end - start;
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buffer[i];
+            }
+            int mask = keys.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                byte[] key = keys[slot];
+                if (key == null) {
+                    return add(slot, buffer, start, end);
+                }
+                if (key.length == length && matches(key, buffer, start)) {
+                    return ordinals[slot];
+                }
+            }
+        }
+
+        private static boolean matches(byte[] key, byte[] buffer, int start) {
+            for (int i = 0; i < key.length; i++) {
+                if (key[i] != buffer[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int add(int slot, byte[] buffer, int start, int end) {
+            byte[] key = Arrays.copyOfRange(buffer, start, end);
+            int ordinal = owner.boroughOrdinal(unquote(new String(key, StandardCharsets.UTF_8).trim()));
+            keys[slot] = key;
+            ordinals[slot] = ordinal;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return ordinal;
+        }
+
+        // removes csv quoting, turning "" back into "
+        private static String unquote(String name) {
+            if (name.length() >= 2 && name.startsWith("\"") && name.endsWith("\"")) {
+                return name.substring(1, name.length() - 1).replace("\"\"", "\"");
+            }
+            return name;
+        }
+
+        private void grow() {
+            byte[][] oldKeys = keys;
+            int[] oldOrdinals = ordinals;
+            keys = new byte[oldKeys.length * 2][];
+            ordinals = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != null) {
+                    int slot = Arrays.hashCode(oldKeys[i]) & mask;
+                    while (keys[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    ordinals[slot] = oldOrdinals[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+// unit test to check that the byte-level csv parser reads rows the same way the old opencsv loader did
+class CovidCsvParserTest {
+
+    // creates test to ensure values, missing fields, quotes and windows line endings are read correctly
+    @Test
+    public void parsesRows() {
+        byte[] csv = ("2022-10-15,Kingston Upon Thames,-20,-3,69,-5,-1,1,11,64560,1,426\r\n"
+                    + "2023-02-09,\"Westminster\",,,,,,,,,0,443\n"
+                    + "\n"
+                    + "2020-02-29,City Of London, 7 ,0,0,0,0,0,0,0,0,0").getBytes(StandardCharsets.UTF_8);
+        CovidTable.Builder builder = new CovidTable.Builder(4);
+        
+        int parsed = new CovidCsvParser().parse(csv, 0, csv.length, true, builder);
+        CovidTable table = builder.build();
+        
+        assertEquals(csv.length, parsed, "Whole input should be parsed");
+        assertEquals(3, table.size(), "Blank line should be skipped");
+        assertEquals(new CovidData("2020-02-29", "City Of London", 7, 0, 0, 0, 0, 0, 0, 0, 0, 0).toString(), table.getRow(0).toString(), "Spaces around numbers should be ignored");
+        assertEquals(new CovidData("2022-10-15", "Kingston Upon Thames", -20, -3, 69, -5, -1, 1, 11, 64560, 1, 426).toString(), table.getRow(1).toString(), "Row with \\r\\n is incorrect");
+        assertEquals(new CovidData("2023-02-09", "Westminster", 0, 0, 0, 0, 0, 0, 0, 0, 0, 443).toString(), table.getRow(2).toString(), "Missing values should be 0");
+    }
+    
+    // creates test to ensure a line cut off at the end of a block is left for the next block
+    @Test
+    public void leavesIncompleteLine() {
+        byte[] csv = "2022-10-15,Hackney,1,2,3,4,5,6,7,8,9,10\n2022-10-16,Hack".getBytes(StandardCharsets.UTF_8);
+        CovidTable.Builder builder = new CovidTable.Builder(2);
+        
+        int parsed = new CovidCsvParser().parse(csv, 0, csv.length, false, builder);
+        
+        assertEquals(csv.length - "2022-10-16,Hack".length(), parsed, "Parsing should stop at the start of the incomplete line");
+        assertEquals(1, builder.size(), "Only the complete line should be added");
+    }
+    
+    // creates test to ensure the date arithmetic matches LocalDate
+    @Test
+    public void epochDayMatchesLocalDate() {
+        for (LocalDate date = LocalDate.parse("1999-12-25"); date.isBefore(LocalDate.parse("2101-01-05")); date = date.plusDays(17)) {
+            assertEquals(date.toEpochDay(), CovidCsvParser.epochDay(date.getYear(), date.getMonthValue(), date.getDayOfMonth()), "Epoch day of " + date + " is incorrect");
+        }
+    }
+}
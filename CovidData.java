@@ -1,5 +1,7 @@
  
 
+import java.time.LocalDate;
+
 /**
  * @author Aïda Tadlaoui, Saruta Kittipattananon, Chen Wang and Isabella Landgrebe
  * Represents one record in the COVID dataset.
@@ -10,9 +12,11 @@
 public class CovidData {
 
     /*
-    The date the COVID information (cases & deaths) was collected
+    The date the COVID information (cases & deaths) was collected, as days since
+    1970-01-01. It is parsed once when the row is created, so comparing and
+    sorting dates is a plain int comparison.
     */
-    private String date;
+    private int epochDay;
     
     /*
     The COVID information is organised by (London) borough
@@ -47,7 +51,16 @@ public class CovidData {
                         int parksGMR, int transitGMR, int workplacesGMR, int residentialGMR, 
                         int newCases, int totalCases, int newDeaths, int totalDeaths) {
 
-        this.date = date;
+        this(Math.toIntExact(LocalDate.parse(date).toEpochDay()), borough, retailRecreationGMR, groceryPharmacyGMR,
+             parksGMR, transitGMR, workplacesGMR, residentialGMR, newCases, totalCases, newDeaths, totalDeaths);
+    }
+
+
+    public CovidData(int epochDay, String borough, int retailRecreationGMR, int groceryPharmacyGMR, 
+                        int parksGMR, int transitGMR, int workplacesGMR, int residentialGMR, 
+                        int newCases, int totalCases, int newDeaths, int totalDeaths) {
+
+        this.epochDay = epochDay;
         this.borough = borough;
         this.retailRecreationGMR = retailRecreationGMR;
         this.groceryPharmacyGMR = groceryPharmacyGMR;
@@ -62,8 +75,21 @@ public class CovidData {
     }
 
 
+    /*
+    The date as yyyy-MM-dd. The label is cached, so every row of the same day shares one String
+    */
     public String getDate() {
-        return date;
+        return DateLabels.iso(epochDay);
+    }
+
+
+    public int getEpochDay() {
+        return epochDay;
+    }
+
+
+    public LocalDate getLocalDate() {
+        return LocalDate.ofEpochDay(epochDay);
     }
 
 
@@ -124,7 +150,7 @@ public class CovidData {
     @Override
     public String toString() {
         return "Covid Record {" + 
-        " date='" + date +'\'' +
+        " date='" + getDate() +'\'' +
         ", borough='" + borough +'\'' +
         ", retailRecreationGMR=" + retailRecreationGMR + 
         ", groceryPharmacyGMR=" + groceryPharmacyGMR + 
@@ -1,81 +1,349 @@
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Arrays;
-import com.opencsv.CSVReader;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
 import java.net.URISyntaxException;
 
 // @author Aïda Tadlaoui, Saruta Kittipattananon, Chen Wang and Isabella Landgrebe
 
 public class CovidDataLoader {
- 
-    /** 
-     * Return an ArrayList containing the rows in the Covid London data set csv file.
+
+    /*
+    Largest block of the file mapped at once. Mappings are limited to 2GB, so
+    bigger files are read as a series of windows that start on line boundaries.
+    */
+    private static final long MAX_WINDOW = 1L << 30;
+
+    private static final long PARALLEL_THRESHOLD = 8L << 20; // smaller files parse faster on one thread
+    private static final long MIN_CHUNK = 1L << 20; // smallest byte range handed to one task
+    private static final int STEP = 4 << 20; // bytes parsed between progress reports and cancellation checks
+
+    /**
+     * Follows the progress of a load and can ask for it to stop.
+     * Updates may come from several threads when a file is parsed in parallel.
+     */
+    public interface LoadMonitor {
+        /**
+         * @param done the number of bytes handled so far
+         * @param total the number of bytes to handle
+         */
+        void progress(long done, long total);
+
+        /**
+         * @return true if the load should stop as soon as possible
+         */
+        default boolean isCancelled() {
+            return false;
+        }
+    }
+
+    private final Path csvFile; // file to read, or null for the bundled covid_london.csv
+    private final CovidSnapshotCache snapshots;
+    private volatile LoadMonitor monitor = (done, total) -> { }; // does nothing unless a monitor is set
+
+    /**
+     * Create a loader for the file named by the covid.csv system property, such as one
+     * written by SyntheticCovidData, or for the bundled Covid London data set if it is not set.
+     */
+    public CovidDataLoader() {
+        this(System.getProperty("covid.csv") == null ? null : Paths.get(System.getProperty("covid.csv")));
+    }
+
+    /**
+     * Create a loader for a csv file with the same columns as covid_london.csv.
+     * @param csvFile the file to read
+     */
+    public CovidDataLoader(Path csvFile) {
+        this(csvFile, new CovidSnapshotCache());
+    }
+
+    /**
+     * Create a loader that keeps its binary snapshots in the given cache.
+     * @param csvFile the file to read, or null for the bundled covid_london.csv
+     * @param snapshots the snapshot cache to use
      */
-    public ArrayList<CovidData> load() {
+    public CovidDataLoader(Path csvFile, CovidSnapshotCache snapshots) {
+        this.csvFile = csvFile;
+        this.snapshots = snapshots;
+    }
+
+    /**
+     * Set the monitor that is told about the progress of later loads.
+     * A load whose monitor reports it as cancelled stops with a CancellationException.
+     * @param monitor the monitor to use
+     */
+    public void setMonitor(LoadMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * Return the Covid London data set csv file as a columnar table.
+     * A binary snapshot of the last parse is used when the csv file has not changed
+     * since; otherwise the file is parsed and a new snapshot is written for next time.
+     */
+    public CovidTable loadTable() {
         System.out.println("Begin loading Covid London dataset...");
-        ArrayList<CovidData> records = new ArrayList<CovidData>();
-        try{
-            URL url = getClass().getResource("covid_london.csv");
-            CSVReader reader = new CSVReader(new FileReader(new File(url.toURI()).getAbsolutePath()));
-            String [] line;
-            //skip the first row (column headers)
-            reader.readNext();
-            while ((line = reader.readNext()) != null) {
-                
-                String date    = line[0];
-                String borough    = line[1];    
-                int retailRecreationGMR    = convertInt(line[2]);    
-                int groceryPharmacyGMR    = convertInt(line[3]);    
-                int parksGMR    = convertInt(line[4]);    
-                int transitGMR    = convertInt(line[5]);    
-                int workplacesGMR    = convertInt(line[6]);    
-                int residentialGMR    = convertInt(line[7]);    
-                int newCases    = convertInt(line[8]);    
-                int totalCases    = convertInt(line[9]);    
-                int newDeaths    = convertInt(line[10]);    
-                int totalDeaths    = convertInt(line[11]);                
-
-                CovidData record = new CovidData(date,borough,retailRecreationGMR,
-                    groceryPharmacyGMR,parksGMR,transitGMR,workplacesGMR,
-                    residentialGMR,newCases,totalCases,newDeaths,totalDeaths);
-                records.add(record);
+        CovidTable table = null;
+        try {
+            Path file = resolveFile();
+            table = snapshots.read(file);
+            if (table != null) {
+                monitor.progress(1, 1);
+            } else {
+                table = parseTable(file);
+                checkCancelled();
+                try {
+                    snapshots.write(file, table);
+                } catch (IOException e) {
+                    // the snapshot only speeds up the next launch, so carry on without it
+                    System.out.println("Could not write snapshot: " + e);
+                }
             }
         } catch(IOException | URISyntaxException e){
             System.out.println("Something Went Wrong?!");
             e.printStackTrace();
         }
-        System.out.println("Number of Loaded Records: " + records.size());
-        return records;
+        if (table == null) {
+            table = new CovidTable.Builder(0).build();
+        }
+        System.out.println("Number of Loaded Records: " + table.size());
+        return table;
     }
 
     /**
-     *
-     * @param doubleString the string to be converted to Double type
-     * @return the Double value of the string, or -1.0 if the string is 
-     * either empty or just whitespace
+     * Parse a csv file into a columnar table, without using or updating the snapshot cache.
+     * Large files are parsed in parallel on the common fork-join pool when it has more
+     * than one thread; everything else is parsed on the calling thread.
+     * @param file the csv file to parse
+     * @return the parsed table
+     * @throws IOException if the file cannot be read
      */
-    private Double convertDouble(String doubleString){
-        if(doubleString != null && !doubleString.trim().equals("")){
-            return Double.parseDouble(doubleString);
+    public CovidTable parseTable(Path file) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (pool.getParallelism() > 1 && Files.size(file) >= PARALLEL_THRESHOLD) {
+            return parseTableParallel(file, pool);
         }
-        return -1.0;
+        return parseTableSequential(file);
     }
 
     /**
-     *
-     * @param intString the string to be converted to Integer type
-     * @return the Integer value of the string, or -1 if the string is 
-     * either empty or just whitespace
+     * Parse a csv file on the calling thread.
+     * The file is memory-mapped and parsed straight from its bytes.
+     * @param file the csv file to parse
+     * @return the parsed table
+     * @throws IOException if the file cannot be read
      */
-    private Integer convertInt(String intString){
-        if(intString != null && !intString.trim().equals("")){
-            return Integer.parseInt(intString);
+    public CovidTable parseTableSequential(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CovidCsvParser parser = new CovidCsvParser();
+            long size = channel.size();
+            CovidTable.Builder builder = new CovidTable.Builder(estimateRows(size));
+            long position = 0;
+            AtomicLong done = new AtomicLong();
+            boolean header = true;
+            while (position < size) {
+                long length = Math.min(MAX_WINDOW, size - position);
+                boolean endOfInput = position + length == size;
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int start = 0;
+                if (header) {
+                    //skip the first row (column headers)
+                    start = CovidCsvParser.nextLineStart(buffer, 0, (int) length);
+                    done.set(start);
+                    header = false;
+                }
+                int parsed = parseInSteps(parser, buffer, start, (int) length, endOfInput, builder, done, size);
+                if (parsed == 0 && !endOfInput) {
+                    throw new IOException("Line longer than " + MAX_WINDOW + " bytes at offset " + position);
+                }
+                position += parsed;
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * Parse a csv file in parallel. The file is split into byte ranges that start
+     * and end on line breaks, every range is parsed into its own partial columns
+     * by a task on the pool, and the partial columns are then appended in file order,
+     * so the result is the same table parseTableSequential would return.
+     * @param file the csv file to parse
+     * @param pool the pool that runs the chunk tasks
+     * @return the parsed table
+     * @throws IOException if the file cannot be read
+     */
+    public CovidTable parseTableParallel(Path file, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = chunkBounds(channel, size, pool.getParallelism());
+            AtomicLong done = new AtomicLong(bounds[0]);
+            List<ChunkTask> tasks = new ArrayList<>();
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                tasks.add(new ChunkTask(channel, bounds[i], bounds[i + 1], done, size));
+            }
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+
+            CovidTable.Builder builder = new CovidTable.Builder(estimateRows(size));
+            for (ChunkTask task : tasks) {
+                builder.addAll(task.result());
+            }
+            return builder.build();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+    Parses a buffer a few megabytes at a time, reporting progress and checking for
+    cancellation in between. Each step ends on the last complete line it holds, and
+    the next step picks up from there. done counts the bytes parsed so far in the
+    whole file (shared by every chunk of a parallel parse) and size is the file size.
+    */
+    private int parseInSteps(CovidCsvParser parser, ByteBuffer buffer, int start, int end, boolean endOfInput,
+                             CovidTable.Builder builder, AtomicLong done, long size) {
+        int position = start;
+        while (position < end) {
+            checkCancelled();
+            int stepEnd = (int) Math.min(end, (long) position + STEP);
+            boolean last = stepEnd == end;
+            int parsed = parser.parse(buffer, position, stepEnd, last && endOfInput, builder);
+            if (parsed == position && !last) {
+                stepEnd = end; // a line longer than a step, hand the parser the rest of the buffer
+                parsed = parser.parse(buffer, position, stepEnd, endOfInput, builder);
+            }
+            if (parsed == position) {
+                break; // incomplete last line, left for the caller
+            }
+            monitor.progress(done.addAndGet(parsed - position), size);
+            position = parsed;
+        }
+        return position;
+    }
+
+    private void checkCancelled() {
+        if (monitor.isCancelled()) {
+            throw new CancellationException("Loading was cancelled");
+        }
+    }
+
+    /*
+    Splits the rows of the file into chunks of roughly equal size. The first chunk
+    starts after the header line and every later one starts just after a line break,
+    so each chunk holds whole lines only. There are a few chunks per thread so that
+    a slow chunk does not leave the other threads idle.
+    */
+    private static long[] chunkBounds(FileChannel channel, long size, int parallelism) throws IOException {
+        long first = nextLineStart(channel, 0, size);
+        long chunkSize = Math.max(MIN_CHUNK, (size - first) / (parallelism * 4L) + 1);
+        chunkSize = Math.min(chunkSize, MAX_WINDOW);
+        List<Long> bounds = new ArrayList<>();
+        bounds.add(first);
+        long position = first;
+        while (position < size) {
+            long next = position + chunkSize >= size ? size : nextLineStart(channel, position + chunkSize - 1, size);
+            if (next - position > Integer.MAX_VALUE) {
+                throw new IOException("Line longer than " + MAX_WINDOW + " bytes at offset " + position);
+            }
+            bounds.add(next);
+            position = next;
+        }
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // position just after the first line break at or after start, or size if there is none
+    private static long nextLineStart(FileChannel channel, long start, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = start;
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Parses one line-aligned byte range of the file into its own builder.
+     */
+    private final class ChunkTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final AtomicLong done; // bytes parsed by all the chunks, for progress reports
+        private final long size;
+        private CovidTable.Builder builder;
+
+        ChunkTask(FileChannel channel, long start, long end, AtomicLong done, long size) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.done = done;
+            this.size = size;
+        }
+
+        @Override
+        protected void compute() {
+            int length = (int) (end - start);
+            builder = new CovidTable.Builder(estimateRows(length));
+            CovidCsvParser parser = new CovidCsvParser();
+            try {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                // the range ends on a line break (or the end of the file), so it is all complete lines
+                parseInSteps(parser, buffer, 0, length, true, builder, done, size);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        CovidTable.Builder result() {
+            return builder;
+        }
+    }
+
+    // rough row count for a file size, so the columns rarely have to grow (rows are about 50 bytes)
+    private static int estimateRows(long fileSize) {
+        return (int) Math.min(Integer.MAX_VALUE - 8, fileSize / 48 + 16);
+    }
+
+    /**
+     * @return the csv file this loader reads
+     */
+    public Path resolveFile() throws URISyntaxException, IOException {
+        if (csvFile != null) {
+            return csvFile;
+        }
+        URL url = getClass().getResource("covid_london.csv");
+        if (url == null) {
+            throw new IOException("covid_london.csv not found on the classpath");
         }
-        return 0;
+        return new File(url.toURI()).toPath();
     }
 
 }
@@ -0,0 +1,40 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.BufferedWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+
+// unit test to check that parsing a file in parallel chunks gives the same table as parsing it in one go
+class CovidDataLoaderTest {
+
+    @TempDir
+    Path folder;
+
+    // creates test to ensure chunked parsing keeps the row order, the borough order and skips only the header
+    @Test
+    public void parallelMatchesSequential() throws Exception {
+        Path csv = folder.resolve("data.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("date,area_name,retail,grocery,parks,transit,workplaces,residential,new_cases,total_cases,new_deaths,total_deaths\n");
+            // ~3MB of rows in reverse date order, so the chunks have to be merged and sorted correctly
+            for (int i = 0; i < 60000; i++) {
+                writer.write(LocalDate.ofEpochDay(20000 - i / 33) + ",Borough " + (i * 7 % 33) + "," + i + ",-1,2,3,4,5," + (i % 97) + ",6,7,8\n");
+            }
+        }
+        CovidDataLoader loader = new CovidDataLoader(csv);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        
+        CovidTable sequential = loader.parseTableSequential(csv);
+        CovidTable parallel = loader.parseTableParallel(csv, pool);
+        pool.shutdown();
+        
+        assertEquals(60000, parallel.size(), "Every row but the header should be read");
+        for (int i = 0; i < sequential.getBoroughCount(); i++) {
+            assertEquals(sequential.getBoroughNameOf(i), parallel.getBoroughNameOf(i), "Borough ordinals should follow the file order");
+        }
+        assertEquals(sequential.rows().toString(), parallel.rows().toString(), "Parallel rows differ from sequential rows");
+    }
+}
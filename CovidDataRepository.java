@@ -0,0 +1,42 @@
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the single shared copy of the COVID dataset.
+ * The data is loaded once and then queried by all the panels. A reload builds
+ * a complete new snapshot first and swaps it in atomically, so readers always
+ * see either the old or the new dataset and never a half-loaded one.
+ */
+public class CovidDataRepository {
+
+    private final AtomicReference<CovidDataset> dataset = new AtomicReference<>(new CovidDataset(CovidTable.fromRecords(List.of())));
+
+    /**
+     * Loads the dataset with the given loader and publishes it.
+     * @param loader the loader used to read the csv file
+     * @return the newly published snapshot
+     */
+    public CovidDataset load(CovidDataLoader loader) {
+        CovidDataset snapshot = new CovidDataset(loader.loadTable());
+        publish(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Atomically replaces the current snapshot.
+     * @param snapshot the new dataset to share with the panels
+     */
+    public void publish(CovidDataset snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("snapshot must not be null");
+        }
+        dataset.set(snapshot);
+    }
+
+    /**
+     * @return the current snapshot (empty until the data has been loaded)
+     */
+    public CovidDataset getDataset() {
+        return dataset.get();
+    }
+}
@@ -0,0 +1,116 @@
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable snapshot of the loaded COVID dataset.
+ * A snapshot is never modified after it has been built, so it can be shared
+ * freely between the panels and any background threads.
+ */
+public final class CovidDataset {
+
+    private final CovidTable table; // every row of the csv file, sorted by date
+    private final RangeSums rangeSums; // cumulative sums for constant time range totals and the graphs' daily series
+    private final List<LocalDate> dates; // distinct dates of the rows, ascending
+
+    /**
+     * Creates a snapshot over an already built table.
+     * @param table the columnar data returned by the loader
+     */
+    public CovidDataset(CovidTable table) {
+        this.table = table;
+        this.rangeSums = RangeSums.of(table);
+        this.dates = distinctDates(table);
+    }
+
+    /**
+     * Creates a snapshot holding a copy of the given records.
+     * @param records the rows to store
+     */
+    public CovidDataset(List<CovidData> records) {
+        this(CovidTable.fromRecords(records));
+    }
+
+    /**
+     * @return the columnar table backing this snapshot
+     */
+    public CovidTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return the cumulative sums used to total any date range, or read any single day
+     */
+    public RangeSums getRangeSums() {
+        return rangeSums;
+    }
+
+    /**
+     * @return every date that has at least one row, in ascending order
+     */
+    public List<LocalDate> getDates() {
+        return dates;
+    }
+
+    // the table is sorted by date, so equal days are next to each other
+    private static List<LocalDate> distinctDates(CovidTable table) {
+        int[] epochDays = table.getEpochDayColumn();
+        List<LocalDate> dates = new ArrayList<>();
+        for (int row = 0; row < table.size(); row++) {
+            if (row == 0 || epochDays[row] != epochDays[row - 1]) {
+                dates.add(LocalDate.ofEpochDay(epochDays[row]));
+            }
+        }
+        return Collections.unmodifiableList(dates);
+    }
+
+    /**
+     * @return the number of records in the dataset
+     */
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Returns the records whose date falls within the given range (inclusive).
+     * @param fromDate the first date to include, or null for no lower bound
+     * @param toDate the last date to include, or null for no upper bound
+     * @return a read-only view over the matching records
+     */
+    public List<CovidData> filterByDate(LocalDate fromDate, LocalDate toDate) {
+        return rowsBetween(fromDate, toDate).asList();
+    }
+
+    /**
+     * Finds the rows whose date falls within the given range (inclusive).
+     * @param fromDate the first date to include, or null for no lower bound
+     * @param toDate the last date to include, or null for no upper bound
+     * @return a view over the rows, in date order
+     */
+    public RowSlice rowsBetween(LocalDate fromDate, LocalDate toDate) {
+        // rows are sorted by date, so the range is one contiguous block found by binary search
+        return table.sliceBetween(toEpochDay(fromDate, Long.MIN_VALUE), toEpochDay(toDate, Long.MAX_VALUE));
+    }
+
+    /**
+     * Finds the rows of one borough whose date falls within the given range (inclusive).
+     * @param borough the full borough name as it appears in the csv file
+     * @param fromDate the first date to include, or null for no lower bound
+     * @param toDate the last date to include, or null for no upper bound
+     * @return a view over the rows, in date order (empty if the borough is not in the dataset)
+     */
+    public RowSlice rowsOfBorough(String borough, LocalDate fromDate, LocalDate toDate) {
+        int boroughOrdinal = table.indexOfBorough(borough);
+        if (boroughOrdinal < 0) {
+            return new RowSlice(table, null, 0, 0); // borough not in the dataset
+        }
+        // the borough's own segment is searched, so the other boroughs' rows cost nothing
+        return table.boroughRowsBetween(boroughOrdinal, toEpochDay(fromDate, Long.MIN_VALUE), toEpochDay(toDate, Long.MAX_VALUE));
+    }
+
+    // converts an optional date bound to an epoch day
+    private static long toEpochDay(LocalDate date, long unbounded) {
+        return date == null ? unbounded : date.toEpochDay();
+    }
+}
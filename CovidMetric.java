@@ -0,0 +1,84 @@
+/**
+ * The numeric columns of the COVID dataset, in the order they appear in the csv file.
+ * The ordinal of each constant is used as the column index in the columnar storage.
+ */
+public enum CovidMetric {
+    RETAIL_RECREATION_GMR("Retail and Recreation GMR"),
+    GROCERY_PHARMACY_GMR("Grocery and Pharmacy GMR"),
+    PARKS_GMR("Parks GMR"),
+    TRANSIT_GMR("Transit Stations GMR"),
+    WORKPLACES_GMR("Workplaces GMR"),
+    RESIDENTIAL_GMR("Residential GMR"),
+    NEW_CASES("New COVID Cases"),
+    TOTAL_CASES("Total COVID Cases"),
+    NEW_DEATHS("New COVID Deaths"),
+    TOTAL_DEATHS("Total COVID Deaths");
+
+    /*
+    Cached copy of values() so hot loops don't allocate a new array each time
+    */
+    private static final CovidMetric[] VALUES = values();
+
+    private final String label;
+
+    CovidMetric(String label) {
+        this.label = label;
+    }
+
+    /**
+     * @return the human readable name of the column
+     */
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * @return true for the Google mobility report columns (percent change from baseline)
+     */
+    public boolean isMobility() {
+        return ordinal() <= RESIDENTIAL_GMR.ordinal();
+    }
+
+    /**
+     * @return true for the running totals, which are not meant to be added up over days
+     */
+    public boolean isCumulative() {
+        return this == TOTAL_CASES || this == TOTAL_DEATHS;
+    }
+
+    /**
+     * Reads this metric from a row object.
+     * @param data the row to read
+     * @return the value of this column in the row
+     */
+    public int valueOf(CovidData data) {
+        switch (this) {
+            case RETAIL_RECREATION_GMR: return data.getRetailRecreationGMR();
+            case GROCERY_PHARMACY_GMR: return data.getGroceryPharmacyGMR();
+            case PARKS_GMR: return data.getParksGMR();
+            case TRANSIT_GMR: return data.getTransitGMR();
+            case WORKPLACES_GMR: return data.getWorkplacesGMR();
+            case RESIDENTIAL_GMR: return data.getResidentialGMR();
+            case NEW_CASES: return data.getNewCases();
+            case TOTAL_CASES: return data.getTotalCases();
+            case NEW_DEATHS: return data.getNewDeaths();
+            case TOTAL_DEATHS: return data.getTotalDeaths();
+            default: throw new IllegalStateException("Unknown metric: " + this);
+        }
+    }
+
+    /**
+     * @return the number of metric columns
+     */
+    public static int count() {
+        return VALUES.length;
+    }
+
+    /**
+     * @param ordinal the column index
+     * @return the metric stored at that column index
+     */
+    public static CovidMetric fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
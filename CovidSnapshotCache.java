@@ -0,0 +1,282 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps a binary copy of a parsed csv file so later launches can skip text parsing.
+ * A snapshot starts with a versioned header that records the size, modification
+ * time and a CRC32 checksum of the start and end of the csv file it was made from,
+ * followed by the borough names and one block per column. A snapshot is only used
+ * while the csv file still matches it; otherwise it is ignored and rewritten.
+ * Checking only the ends of the file keeps the check cheap next to parsing it,
+ * while still catching a file replaced by one of the same size and time.
+ *
+ * Snapshots are read and written through a small buffer rather than a memory
+ * mapping, so no file stays mapped (and locked, on Windows) after a load.
+ *
+ * The snapshots live in the directory given by the covid.cache.dir system
+ * property, or in a london-covid-stats folder in the user's cache directory
+ * ($XDG_CACHE_HOME, or ~/.cache), which only the user can read.
+ */
+public class CovidSnapshotCache {
+
+    private static final int MAGIC = 0x43564453; // "CVDS"
+    private static final int VERSION = 2; // 2: borough names are normalised by BoroughRegistry
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 8 + 4 + 4 + 4;
+    private static final int BUFFER_SIZE = 1 << 20; // bytes read or written at a time
+    private static final int CHECKSUM_SPAN = 1 << 16; // bytes checksummed at each end of the csv file
+
+    private final Path directory;
+
+    /**
+     * Create a cache in the default directory.
+     */
+    public CovidSnapshotCache() {
+        this(defaultDirectory());
+    }
+
+    /**
+     * Create a cache in the given directory.
+     * @param directory where the snapshot files are kept
+     */
+    public CovidSnapshotCache(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Reads the snapshot of a csv file, if there is an up to date one.
+     * @param csvFile the source file
+     * @return the cached table, or null if there is no valid snapshot
+     */
+    public CovidTable read(Path csvFile) {
+        Path snapshot = snapshotFile(csvFile);
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip(); // empty until the first fill
+            if (channel.size() < HEADER_SIZE) {
+                return null;
+            }
+            fill(channel, buffer, HEADER_SIZE);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                return null; // not a snapshot, or written by another version
+            }
+            BasicFileAttributes attributes = Files.readAttributes(csvFile, BasicFileAttributes.class);
+            long size = buffer.getLong();
+            long modified = buffer.getLong();
+            long checksum = buffer.getLong();
+            if (size != attributes.size() || modified != attributes.lastModifiedTime().toMillis() || checksum != checksum(csvFile)) {
+                return null; // the csv file has changed since the snapshot was written
+            }
+            int rows = buffer.getInt();
+            int boroughCount = buffer.getInt();
+            int metricCount = buffer.getInt();
+            if (metricCount != CovidMetric.count() || rows < 0 || boroughCount < 0
+                    || HEADER_SIZE + (long) rows * (4 + 2 + 4L * metricCount) > channel.size()) {
+                return null; // not the layout this version writes, or cut short
+            }
+
+            String[] boroughNames = new String[boroughCount];
+            for (int i = 0; i < boroughCount; i++) {
+                fill(channel, buffer, 2);
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                fill(channel, buffer, name.length);
+                buffer.get(name);
+                boroughNames[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            int[] epochDays = new int[rows];
+            readInts(channel, buffer, epochDays);
+            short[] boroughs = new short[rows];
+            for (int i = 0; i < rows; ) {
+                fill(channel, buffer, 2);
+                int n = Math.min(rows - i, buffer.remaining() / 2);
+                buffer.asShortBuffer().get(boroughs, i, n);
+                buffer.position(buffer.position() + n * 2);
+                i += n;
+            }
+            int[][] metrics = new int[metricCount][rows];
+            for (int m = 0; m < metricCount; m++) {
+                readInts(channel, buffer, metrics[m]);
+            }
+            return CovidTable.fromColumns(epochDays, boroughs, boroughNames, metrics);
+        } catch (IOException | RuntimeException e) {
+            System.out.println("Ignoring unreadable snapshot " + snapshot + ": " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Writes a snapshot of a parsed csv file. The file is written under a temporary
+     * name and then moved into place, so a reader never sees a half written snapshot.
+     * @param csvFile the source file the table was parsed from
+     * @param table the parsed table
+     * @throws IOException if the snapshot cannot be written
+     */
+    public void write(Path csvFile, CovidTable table) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(csvFile, BasicFileAttributes.class);
+        long checksum = checksum(csvFile);
+        int rows = table.size();
+
+        byte[][] names = new byte[table.getBoroughCount()][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = table.getBoroughNameOf(i).getBytes(StandardCharsets.UTF_8);
+            if (names[i].length > 0xFFFF) {
+                throw new IOException("Borough name too long: " + table.getBoroughNameOf(i));
+            }
+        }
+
+        createDirectory(directory);
+        Path snapshot = snapshotFile(csvFile);
+        Path temporary = Files.createTempFile(directory, snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.putInt(MAGIC).putInt(VERSION);
+                buffer.putLong(attributes.size()).putLong(attributes.lastModifiedTime().toMillis()).putLong(checksum);
+                buffer.putInt(rows).putInt(names.length).putInt(CovidMetric.count());
+                for (byte[] name : names) {
+                    if (buffer.remaining() < 2 + name.length) {
+                        drain(channel, buffer);
+                    }
+                    buffer.putShort((short) name.length).put(name);
+                }
+                writeInts(channel, buffer, table.getEpochDayColumn(), rows);
+                short[] boroughs = table.getBoroughColumn();
+                for (int i = 0; i < rows; ) {
+                    if (buffer.remaining() < 2) {
+                        drain(channel, buffer);
+                    }
+                    int n = Math.min(rows - i, buffer.remaining() / 2);
+                    buffer.asShortBuffer().put(boroughs, i, n);
+                    buffer.position(buffer.position() + n * 2);
+                    i += n;
+                }
+                for (CovidMetric metric : CovidMetric.values()) {
+                    writeInts(channel, buffer, table.getColumn(metric), rows);
+                }
+                drain(channel, buffer);
+                channel.force(false);
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * @param csvFile a source file
+     * @return where the snapshot of that file is kept
+     */
+    public Path snapshotFile(Path csvFile) {
+        Path absolute = csvFile.toAbsolutePath().normalize();
+        // the path hash keeps snapshots of different files with the same name apart
+        String name = absolute.getFileName() + "-" + Integer.toHexString(absolute.toString().hashCode()) + ".snapshot";
+        return directory.resolve(name);
+    }
+
+    // the cache directory of the user: $XDG_CACHE_HOME if it is set to an absolute path, or ~/.cache
+    private static Path defaultDirectory() {
+        String configured = System.getProperty("covid.cache.dir");
+        if (configured != null) {
+            return Paths.get(configured);
+        }
+        String xdg = System.getenv("XDG_CACHE_HOME");
+        Path base = xdg != null && Paths.get(xdg).isAbsolute() ? Paths.get(xdg) : Paths.get(System.getProperty("user.home"), ".cache");
+        return base.resolve("london-covid-stats");
+    }
+
+    // creates the directory, readable only by its owner where the file system has POSIX permissions
+    private static void createDirectory(Path directory) throws IOException {
+        if (Files.isDirectory(directory)) {
+            return;
+        }
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createDirectories(directory, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+        } else {
+            Files.createDirectories(directory);
+        }
+    }
+
+    // CRC32 of the first and last CHECKSUM_SPAN bytes of the file (all of it, if it is small)
+    private static long checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate(CHECKSUM_SPAN);
+            update(crc, channel, buffer, 0, Math.min(size, CHECKSUM_SPAN));
+            long tail = Math.max(Math.min(size, CHECKSUM_SPAN), size - CHECKSUM_SPAN); // where the end part starts, after the start part
+            update(crc, channel, buffer, tail, size - tail);
+        }
+        return crc.getValue();
+    }
+
+    // adds length bytes of the file, from the given position, to the checksum
+    private static void update(CRC32 crc, FileChannel channel, ByteBuffer buffer, long position, long length) throws IOException {
+        buffer.clear().limit((int) length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("File shorter than its size");
+            }
+        }
+        buffer.flip();
+        crc.update(buffer);
+    }
+
+    // makes sure at least the given number of bytes are in the buffer, reading more from the channel as needed
+    private static void fill(FileChannel channel, ByteBuffer buffer, int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return;
+        }
+        buffer.compact();
+        while (buffer.position() < bytes) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Snapshot is shorter than its header says");
+            }
+        }
+        buffer.flip();
+    }
+
+    // writes out what is in the buffer and empties it
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void readInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        for (int i = 0; i < values.length; ) {
+            fill(channel, buffer, 4);
+            int n = Math.min(values.length - i, buffer.remaining() / 4);
+            buffer.asIntBuffer().get(values, i, n);
+            buffer.position(buffer.position() + n * 4);
+            i += n;
+        }
+    }
+
+    private static void writeInts(FileChannel channel, ByteBuffer buffer, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; ) {
+            if (buffer.remaining() < 4) {
+                drain(channel, buffer);
+            }
+            int n = Math.min(count - i, buffer.remaining() / 4);
+            buffer.asIntBuffer().put(values, i, n);
+            buffer.position(buffer.position() + n * 4);
+            i += n;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.attribute.PosixFilePermissions;
+
+// unit test to check that a binary snapshot gives back the parsed table, and only while the csv is unchanged
+class CovidSnapshotCacheTest {
+
+    private static final String CSV = "date,area_name,retail,grocery,parks,transit,workplaces,residential,new_cases,total_cases,new_deaths,total_deaths\n"
+                                    + "2022-10-15,Hackney,-20,-3,69,-5,-1,1,11,64560,1,426\n"
+                                    + "2020-02-29,Westminster,7,0,0,0,0,0,0,0,0,0\n";
+
+    @TempDir
+    Path folder;
+
+    // creates test to ensure a snapshot round trip keeps every row
+    @Test
+    public void readsBackWrittenTable() throws Exception {
+        Path csv = folder.resolve("data.csv");
+        Files.write(csv, CSV.getBytes(StandardCharsets.UTF_8));
+        CovidSnapshotCache cache = new CovidSnapshotCache(folder.resolve("cache"));
+        
+        assertNull(cache.read(csv), "There should be no snapshot before the first load");
+        CovidTable parsed = new CovidDataLoader(csv, cache).loadTable();
+        CovidTable cached = cache.read(csv);
+        
+        assertNotNull(cached, "Loading should have written a snapshot");
+        assertEquals(parsed.rows().toString(), cached.rows().toString(), "Snapshot rows differ from the parsed rows");
+    }
+    
+    // creates test to ensure a changed csv file is parsed again instead of read from the snapshot
+    @Test
+    public void ignoresStaleSnapshot() throws Exception {
+        Path csv = folder.resolve("data.csv");
+        Files.write(csv, CSV.getBytes(StandardCharsets.UTF_8));
+        FileTime modified = Files.getLastModifiedTime(csv);
+        CovidSnapshotCache cache = new CovidSnapshotCache(folder.resolve("cache"));
+        new CovidDataLoader(csv, cache).loadTable();
+        
+        // same size and modification time, different contents
+        Files.write(csv, CSV.replace("Hackney", "Camden!").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(csv, modified);
+        
+        assertNull(cache.read(csv), "A snapshot of different contents should not be used");
+        assertEquals("Camden!", new CovidDataLoader(csv, cache).loadTable().getRow(1).getBorough(), "The changed csv should be parsed again");
+    }
+
+    // creates test to ensure the cache directory is created readable by its owner only
+    @Test
+    public void directoryIsPrivate() throws Exception {
+        Path csv = folder.resolve("data.csv");
+        Files.write(csv, CSV.getBytes(StandardCharsets.UTF_8));
+        Path directory = folder.resolve("cache").resolve("snapshots");
+        new CovidSnapshotCache(directory).write(csv, new CovidDataLoader(csv).parseTable(csv));
+        
+        assertTrue(Files.isDirectory(directory), "Cache directory should be created");
+        if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(directory)), "Cache directory permissions are incorrect");
+        }
+    }
+}
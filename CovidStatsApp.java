@@ -1,4 +1,5 @@
 import javafx.application.Application;
+import javafx.concurrent.Task;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
@@ -8,9 +9,9 @@ import javafx.scene.layout.*;
 import javafx.stage.Stage;
 import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.function.IntToLongFunction;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import javafx.geometry.Insets;
@@ -18,8 +19,6 @@ import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import java.util.List;
 
-import org.junit.jupiter.api.Test;
-import static org.junit.jupiter.api.Assertions.*;
 
 // @author Aïda Tadlaoui, Saruta Kittipattananon, Chen Wang and Isabella Landgrebe
 
@@ -36,6 +35,11 @@ public class CovidStatsApp extends Application {
     private MapPanel mapPanel;
     private StatisticsPanel statisticsPanel;
     private GraphPanel graphPanel;
+    private final CovidDataRepository repository = new CovidDataRepository(); // shared dataset, loaded once in start()
+    private ProgressBar loadingBar; // shows how much of the data has been loaded
+    private Label loadingLabel;
+    private LoadTask loadTask; // background load of the data, null until start()
+    private final LatestOnlyExecutor rangeUpdates = new LatestOnlyExecutor("covid-range-update"); // recomputes the panels off the FX thread
     
     // constructor for the application:
     public CovidStatsApp() {
@@ -43,15 +47,18 @@ public class CovidStatsApp extends Application {
         VBox welcomePanel = new VBox(10); // vertical box holds UI elents for message
         Label welcomeLabel = new Label("Welcome to the London COVID-19 Statistics Viewer!\nPlease select a date range to begin.");
         dateRangeLabel = new Label(); // label shows selected date range
-        welcomePanel.getChildren().addAll(welcomeLabel, dateRangeLabel);
+        loadingBar = new ProgressBar(); // indeterminate until the loader reports progress
+        loadingBar.setPrefWidth(300);
+        loadingLabel = new Label();
+        welcomePanel.getChildren().addAll(welcomeLabel, dateRangeLabel, loadingBar, loadingLabel);
         welcomePanel.setAlignment(Pos.CENTER); // aligns welcome message
         
         // initialises the map, statistics and graph panels
-        mapPanel = new MapPanel();
+        mapPanel = new MapPanel(repository);
         mapPanel.setVisible(false); // not initially visible
         statisticsPanel = new StatisticsPanel();
         statisticsPanel.setVisible(false); 
-        graphPanel = new GraphPanel(); 
+        graphPanel = new GraphPanel(repository); 
         graphPanel.setVisible(false); 
         
         // list of panels to manage more easily
@@ -65,9 +72,6 @@ public class CovidStatsApp extends Application {
         setupTopMenu(borderPane, primaryStage);
         setupNavigation(borderPane);
         
-        ArrayList<CovidData> allData = new CovidDataLoader().load(); // loads the COVID data
-        updateDateSelectors(allData); // sets up date selection componenets
-        
         panelsContainer.getChildren().addAll(panels);
         updatePanelVisibility(); // shows correct panel based on current index
         
@@ -78,8 +82,55 @@ public class CovidStatsApp extends Application {
         primaryStage.setScene(scene);
         primaryStage.show();
         
-        HashMap<String, Integer> deathRates = calculateDeathRates(allData); // calculates death rates
-        mapPanel.setDeathRates(deathRates); // updates map panel using the calculated death rates
+        startLoading(); // loads the COVID data once for the whole application, without blocking the window
+    }
+    
+    // cancels a load or recomputation that is still running when the application closes
+    @Override
+    public void stop() {
+        if (loadTask != null) {
+            loadTask.cancel();
+        }
+        rangeUpdates.shutdown();
+        graphPanel.stopUpdates();
+    }
+    
+    // loads the data on a background thread and sets up the date selectors once it is ready
+    private void startLoading() {
+        loadTask = new LoadTask(repository);
+        loadingBar.progressProperty().bind(loadTask.progressProperty());
+        loadingLabel.textProperty().bind(loadTask.messageProperty());
+        
+        loadTask.setOnSucceeded(event -> {
+            CovidDataset dataset = loadTask.getValue();
+            updateDateSelectors(dataset.getDates()); // sets up date selection componenets
+            graphPanel.setBoroughChoices(Arrays.asList(dataset.getTable().getBoroughRegistry().getNames())); // the boroughs as named in the data
+            reportUnmappedBoroughs(dataset.getTable());
+            HashMap<String, Long> deathRates = calculateDeathRates(dataset, null, null); // calculates death rates over the whole dataset
+            mapPanel.setDeathRates(deathRates); // updates map panel using the calculated death rates
+            fromComboBox.setDisable(false);
+            toComboBox.setDisable(false);
+            showLoadingState(false, null);
+        });
+        loadTask.setOnFailed(event -> {
+            loadTask.getException().printStackTrace();
+            showLoadingState(false, "The COVID-19 data could not be loaded.");
+        });
+        
+        Thread loader = new Thread(loadTask, "covid-data-loader");
+        loader.setDaemon(true); // never keeps the application running after the window is closed
+        loader.start();
+    }
+    
+    // shows or hides the progress bar, leaving an optional message in its place
+    private void showLoadingState(boolean loading, String message) {
+        loadingBar.setVisible(loading);
+        loadingBar.setManaged(loading);
+        loadingLabel.textProperty().unbind();
+        loadingLabel.setText(message);
+        loadingLabel.setTextFill(javafx.scene.paint.Color.RED);
+        loadingLabel.setVisible(message != null);
+        loadingLabel.setManaged(message != null);
     }
     
     // menu bar and date selectors: allows user to exit and pick date
@@ -92,6 +143,8 @@ public class CovidStatsApp extends Application {
         
         fromComboBox = new ComboBox<>(); // 'from' date
         toComboBox = new ComboBox<>(); // 'to' date
+        fromComboBox.setDisable(true); // disabled until the data has loaded
+        toComboBox.setDisable(true);
         
         HBox dateSelectors = new HBox(5, new Label("From:"), fromComboBox, new Label("To:"), toComboBox);
         
@@ -106,14 +159,9 @@ public class CovidStatsApp extends Application {
         exitItem.setOnAction(event -> primaryStage.close()); // exits the application
     }
     
-    private void updateDateSelectors(ArrayList<CovidData> allData) {
-        Set<LocalDate> uniqueDates = allData.stream() // gets unique dates form the data
-            .map(data -> LocalDate.parse(data.getDate()))
-            .collect(Collectors.toSet());
-        
-        // converts the dates into observable list for the combo boxes:
-        ObservableList<LocalDate> sortedDates = FXCollections.observableArrayList(uniqueDates);
-        FXCollections.sort(sortedDates);
+    private void updateDateSelectors(List<LocalDate> dates) {
+        // converts the dates (already unique and sorted in the dataset) into observable list for the combo boxes:
+        ObservableList<LocalDate> sortedDates = FXCollections.observableArrayList(dates);
 
         // sets the sorted dates as items so the combo boxes can handle the chosen date range
         fromComboBox.setItems(sortedDates);
@@ -131,14 +179,18 @@ public class CovidStatsApp extends Application {
         
         // ensures the selected date range is valid (i.e. toDate does not come before fromDate)
         if (fromDate != null && toDate != null && !fromDate.isAfter(toDate)) {
-            ArrayList<CovidData> filteredData = filterData(fromDate, toDate); // filters the data to only contain the data within the date range
+            CovidDataset dataset = repository.getDataset();
+            int windowDays = mapPanel.getWindowDays(); // read here, as the combo box belongs to the FX thread
             
-            // update panels with filtered data:
-            mapPanel.setDeathRates(calculateDeathRates(filteredData));
-            mapPanel.setFromDate(fromDate);
-            mapPanel.setToDate(toDate);
-            statisticsPanel.updateStatistics(filteredData);
-            graphPanel.updateDateAndGraph(fromDate, toDate, filteredData);
+            // totals of the date range are computed in the background, and only the latest selection is shown:
+            rangeUpdates.submit(() -> summariseRange(dataset, fromDate, toDate, windowDays), summary -> {
+                mapPanel.setDeathRates(summary.deathRates);
+                mapPanel.setFromDate(fromDate);
+                mapPanel.setToDate(toDate);
+                mapPanel.setFrames(summary.frames);
+                statisticsPanel.updateStatistics(summary.statistics);
+            }, this::rangeUpdateError);
+            graphPanel.updateDateAndGraph(fromDate, toDate); // the graph panel computes its series the same way
             
             // format and display selected date range
             DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd MMMM yyyy");
@@ -162,50 +214,63 @@ public class CovidStatsApp extends Application {
         statisticsPanel.enableNavigationButtons(enable); // enables/disables navigation in statistics panel
     }
     
-    // filters dataset based on date range
-    private ArrayList<CovidData> filterData(LocalDate fromDate, LocalDate toDate) {
-        ArrayList<CovidData> allData = new CovidDataLoader().load(); // loads data
-        ArrayList<CovidData> filteredData = new ArrayList<>(); // preapres the filtered (depending on the dates) data
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd"); // mathces the date format used in the dataset
-        
-        // filters through the data in the selected date range
-        for (CovidData record : allData) {
-            LocalDate recordDate;
-            try {
-                recordDate = LocalDate.parse(record.getDate(), formatter); // Parse with the formatter
-            } 
-            catch (DateTimeParseException e) {
-                // handles situation when date cannot be parsed
-                e.printStackTrace(); // logs the error
-                continue; // skips to next iteration if error occurs
-            }
-            if (!recordDate.isBefore(fromDate) && !recordDate.isAfter(toDate)) {
-                filteredData.add(record); // adds to filtered list if within the range
-            }
-        }
-        return filteredData; // returns this filtered data
+    // reads the map totals, the map's time-lapse frames and the statistics of the new dates from the prefix sums
+    static RangeSummary summariseRange(CovidDataset dataset, LocalDate fromDate, LocalDate toDate, int windowDays) {
+        return new RangeSummary(calculateDeathRates(dataset, fromDate, toDate),
+                                TimeLapseFrames.of(dataset, fromDate, toDate, windowDays),
+                                dataset.getRangeSums().statistics(fromDate.toEpochDay(), toDate.toEpochDay()));
     }
     
-    // calculate death rate for each borough:
-    private HashMap<String, Integer> calculateDeathRates(ArrayList<CovidData> dataList) {
-        HashMap<String, Integer> deathRates = new HashMap<>();
+    // calculate death rate for each borough (null dates mean the whole dataset):
+    static HashMap<String, Long> calculateDeathRates(CovidDataset dataset, LocalDate fromDate, LocalDate toDate) {
+        long from = fromDate == null ? Long.MIN_VALUE : fromDate.toEpochDay();
+        long to = toDate == null ? Long.MAX_VALUE : toDate.toEpochDay();
+        // totals the deaths of each borough over the selected dates in constant time
+        return calculateDeathRates(dataset.getTable(), borough -> dataset.getRangeSums().sum(CovidMetric.NEW_DEATHS, borough, from, to));
+    }
     
-        for (CovidData data : dataList) {
-            String boroughName = data.getBorough();
-            String polygonKey = BoroughMapper.getPolygonKey(boroughName); // maps each borough to a unique key as shown on the Map Panel
+    // adds up the deaths of each borough under its key on the map; boroughs without a polygon are left out
+    static HashMap<String, Long> calculateDeathRates(CovidTable table, IntToLongFunction deathsOfBorough) {
+        HashMap<String, Long> deathRates = new HashMap<>();
+        for (int borough = 0; borough < table.getBoroughCount(); borough++) {
+            String polygonKey = table.getBoroughRegistry().getPolygonKey(borough); // maps each borough to a unique key as shown on the Map Panel
     
-            // if a mapping is found, it counts the death rates for the borough for all the selected dates:
+            // if a mapping is found, it adds the deaths of the borough to its key:
             if (polygonKey != null) {
-                int deaths = data.getNewDeaths(); 
-                deathRates.merge(polygonKey, deaths, Integer::sum);
-            } else {
-                System.out.println("No mapping found for borough: " + boroughName);
+                long deaths = deathsOfBorough.applyAsLong(borough); // a long, as a whole dataset of many regions can pass an int
+                deathRates.merge(polygonKey, deaths, Long::sum);
             }
         }
     
         return deathRates;
     }
     
+    // says once per load which boroughs cannot be shown on the map, rather than on every change of dates
+    private static void reportUnmappedBoroughs(CovidTable table) {
+        int unmapped = 0;
+        for (int borough = 0; borough < table.getBoroughCount(); borough++) {
+            if (table.getBoroughRegistry().getPolygonKey(borough) == null) {
+                if (unmapped < 5) {
+                    System.out.println("No mapping found for borough: " + table.getBoroughNameOf(borough));
+                }
+                unmapped++;
+            }
+        }
+        if (unmapped > 5) {
+            System.out.println("... and " + (unmapped - 5) + " more boroughs without a mapping");
+        }
+    }
+    
+    // tells the user the panels could not be updated for the selected date range
+    private void rangeUpdateError(RuntimeException e) {
+        e.printStackTrace();
+        Alert alert = new Alert(AlertType.ERROR);
+        alert.setTitle("Update Failed");
+        alert.setHeaderText("The panels could not be updated for this date range.");
+        alert.setContentText(e.getMessage());
+        alert.show();
+    }
+    
     // creates error message if invalid date range is used
     private void dateRangeError() {
         Alert alert = new Alert(AlertType.WARNING); // warning for user if date range is invalid
@@ -272,6 +337,41 @@ public class CovidStatsApp extends Application {
         }
     }
 
+    // results of a date range recomputation, ready to be shown by the map and statistics panels
+    static final class RangeSummary {
+        final HashMap<String, Long> deathRates;
+        final TimeLapseFrames frames;
+        final MetricAggregator statistics;
+
+        RangeSummary(HashMap<String, Long> deathRates, TimeLapseFrames frames, MetricAggregator statistics) {
+            this.deathRates = deathRates;
+            this.frames = frames;
+            this.statistics = statistics;
+        }
+    }
+
+    // loads the dataset off the FX thread, passing the loader's progress on to the progress bar
+    private static class LoadTask extends Task<CovidDataset> implements CovidDataLoader.LoadMonitor {
+        private final CovidDataRepository repository;
+
+        LoadTask(CovidDataRepository repository) {
+            this.repository = repository;
+        }
+
+        @Override
+        protected CovidDataset call() {
+            updateMessage("Loading COVID-19 data...");
+            CovidDataLoader loader = new CovidDataLoader();
+            loader.setMonitor(this); // the loader checks isCancelled() as it goes
+            return repository.load(loader);
+        }
+
+        @Override
+        public void progress(long done, long total) {
+            updateProgress(done, total);
+        }
+    }
+
     // main method to launch application:
     public static void main(String[] args) {
         launch(args);
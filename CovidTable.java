@@ -0,0 +1,484 @@
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Columnar storage for the COVID dataset.
+ * Instead of one CovidData object per row, every column is kept in its own
+ * primitive array: one int[] per metric, the dates as epoch days and the
+ * boroughs as small ordinals into a shared name table. Rows are kept sorted
+ * by date so that a date range is always one contiguous block of rows, found
+ * with two binary searches. A table is immutable once it has been built.
+ */
+public final class CovidTable {
+
+    private final int size; // number of rows
+    private final int[] epochDays; // date of each row as days since 1970-01-01, sorted ascending
+    private final short[] boroughs; // borough of each row as an index into boroughNames
+    private final String[] boroughNames; // borough names in order of first appearance
+    private final BoroughRegistry registry; // borough lookups by name and polygon key, with the ordinals as IDs
+    private final int[] boroughRows; // every row grouped by borough, in date order within each borough
+    private final int[] boroughStarts; // borough b's rows are boroughRows[boroughStarts[b]] to boroughRows[boroughStarts[b + 1] - 1]
+    private final int[][] metrics; // one column per CovidMetric, indexed by ordinal
+
+    private final List<CovidData> rows = new RowView();
+
+    private CovidTable(int size, int[] epochDays, short[] boroughs, String[] boroughNames, int[][] metrics) {
+        this.size = size;
+        this.epochDays = epochDays;
+        this.boroughs = boroughs;
+        this.boroughNames = boroughNames;
+        this.metrics = metrics;
+        this.registry = new BoroughRegistry(boroughNames);
+        
+        // counting sort of the rows by borough; rows are visited in date order, so each segment stays date sorted
+        boroughStarts = new int[boroughNames.length + 1];
+        for (int row = 0; row < size; row++) {
+            boroughStarts[boroughs[row] + 1]++;
+        }
+        for (int b = 0; b < boroughNames.length; b++) {
+            boroughStarts[b + 1] += boroughStarts[b];
+        }
+        boroughRows = new int[size];
+        int[] next = Arrays.copyOf(boroughStarts, boroughNames.length);
+        for (int row = 0; row < size; row++) {
+            boroughRows[next[boroughs[row]]++] = row;
+        }
+    }
+
+    /**
+     * Wraps already sorted column arrays (e.g. read back from a snapshot file) without copying them.
+     * @param epochDays the date of each row, sorted ascending
+     * @param boroughs the borough ordinal of each row
+     * @param boroughNames the names the ordinals refer to
+     * @param metrics one column per CovidMetric, indexed by ordinal
+     * @return a table over the given arrays
+     */
+    public static CovidTable fromColumns(int[] epochDays, short[] boroughs, String[] boroughNames, int[][] metrics) {
+        int size = epochDays.length;
+        if (boroughs.length != size || metrics.length != CovidMetric.count()) {
+            throw new IllegalArgumentException("Columns do not line up");
+        }
+        for (int[] column : metrics) {
+            if (column.length != size) {
+                throw new IllegalArgumentException("Columns do not line up");
+            }
+        }
+        for (int row = 0; row < size; row++) {
+            if ((row > 0 && epochDays[row - 1] > epochDays[row]) || boroughs[row] < 0 || boroughs[row] >= boroughNames.length) {
+                throw new IllegalArgumentException("Invalid row " + row);
+            }
+        }
+        return new CovidTable(size, epochDays, boroughs, boroughNames, metrics);
+    }
+
+    /**
+     * Builds a table from row objects (mainly useful for tests and small data sets).
+     * @param records the rows to copy into the table
+     * @return a new table holding the same data
+     */
+    public static CovidTable fromRecords(List<CovidData> records) {
+        Builder builder = new Builder(records.size());
+        int[] values = new int[CovidMetric.count()];
+        for (CovidData record : records) {
+            for (int m = 0; m < values.length; m++) {
+                values[m] = CovidMetric.fromOrdinal(m).valueOf(record);
+            }
+            builder.add(record.getEpochDay(), record.getBorough(), values);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the number of rows in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param row the row index
+     * @return the date of the row as an epoch day
+     */
+    public int getEpochDay(int row) {
+        return epochDays[row];
+    }
+
+    /**
+     * @param row the row index
+     * @return the borough ordinal of the row
+     */
+    public int getBorough(int row) {
+        return boroughs[row];
+    }
+
+    /**
+     * @param row the row index
+     * @return the full borough name of the row
+     */
+    public String getBoroughName(int row) {
+        return boroughNames[boroughs[row]];
+    }
+
+    /**
+     * @return the number of distinct boroughs in the table
+     */
+    public int getBoroughCount() {
+        return boroughNames.length;
+    }
+
+    /**
+     * @param ordinal a borough ordinal
+     * @return the full name of that borough
+     */
+    public String getBoroughNameOf(int ordinal) {
+        return boroughNames[ordinal];
+    }
+
+    /**
+     * @param boroughName a full borough name, in any case or spelling the registry recognises
+     * @return the ordinal of the borough, or -1 if it is not in the table
+     */
+    public int indexOfBorough(String boroughName) {
+        return registry.idOf(boroughName);
+    }
+
+    /**
+     * @return the registry of the table's boroughs, whose IDs are the borough ordinals
+     */
+    public BoroughRegistry getBoroughRegistry() {
+        return registry;
+    }
+
+    /**
+     * @param metric the column to read
+     * @param row the row index
+     * @return the value of the metric in that row
+     */
+    public int getValue(CovidMetric metric, int row) {
+        return metrics[metric.ordinal()][row];
+    }
+
+    /**
+     * Returns the backing array of a metric column for fast scans.
+     * The array is shared with the table and must not be modified.
+     * @param metric the column to return
+     * @return the column values, one per row
+     */
+    public int[] getColumn(CovidMetric metric) {
+        return metrics[metric.ordinal()];
+    }
+
+    /**
+     * Returns the backing array of the date column for fast scans.
+     * The array is shared with the table and must not be modified.
+     * @return the epoch day of every row
+     */
+    public int[] getEpochDayColumn() {
+        return epochDays;
+    }
+
+    /**
+     * Returns the backing array of the borough column for fast scans.
+     * The array is shared with the table and must not be modified.
+     * @return the borough ordinal of every row
+     */
+    public short[] getBoroughColumn() {
+        return boroughs;
+    }
+
+    /**
+     * Finds the first row on or after the given day.
+     * @param epochDay the day to search for
+     * @return the index of the first row whose date is not before the day (size() if there is none)
+     */
+    public int lowerBound(long epochDay) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[mid] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first row after the given day.
+     * @param epochDay the day to search for
+     * @return the index of the first row whose date is after the day (size() if there is none)
+     */
+    public int upperBound(long epochDay) {
+        return epochDay == Long.MAX_VALUE ? size : lowerBound(epochDay + 1);
+    }
+
+    /**
+     * Returns the rows of one borough dated within the given range (inclusive). The
+     * borough's rows are stored together in date order, so the range is found with two
+     * binary searches in its segment and no other borough's rows are looked at.
+     * @param borough the borough ordinal
+     * @param fromEpochDay the first day to include
+     * @param toEpochDay the last day to include
+     * @return a view over the matching rows, in date order
+     */
+    public RowSlice boroughRowsBetween(int borough, long fromEpochDay, long toEpochDay) {
+        int start = boroughStarts[borough];
+        int end = boroughStarts[borough + 1];
+        int from = segmentBound(start, end, fromEpochDay);
+        int to = toEpochDay == Long.MAX_VALUE ? end : segmentBound(from, end, toEpochDay + 1);
+        return new RowSlice(this, boroughRows, from, Math.max(from, to));
+    }
+
+    // first position in boroughRows[start, end) whose row is dated on or after the day
+    private int segmentBound(int start, int end, long epochDay) {
+        int low = start;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (epochDays[boroughRows[mid]] < epochDay) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the rows dated within the given range (inclusive). Rows are sorted by
+     * date, so they are one block of consecutive rows.
+     * @param fromEpochDay the first day to include
+     * @param toEpochDay the last day to include
+     * @return a view over the matching rows
+     */
+    public RowSlice sliceBetween(long fromEpochDay, long toEpochDay) {
+        int from = lowerBound(fromEpochDay);
+        int to = Math.max(from, upperBound(toEpochDay));
+        return new RowSlice(this, null, from, to);
+    }
+
+    /**
+     * Returns the rows dated within the given range (inclusive) without copying them.
+     * @param fromEpochDay the first day to include
+     * @param toEpochDay the last day to include
+     * @return a read-only view over the matching rows
+     */
+    public List<CovidData> rowsBetween(long fromEpochDay, long toEpochDay) {
+        return sliceBetween(fromEpochDay, toEpochDay).asList();
+    }
+
+    /**
+     * Materialises one row as a CovidData object.
+     * @param row the row index
+     * @return a new CovidData holding the values of the row
+     */
+    public CovidData getRow(int row) {
+        return new CovidData(epochDays[row], boroughNames[boroughs[row]],
+            metrics[0][row], metrics[1][row], metrics[2][row], metrics[3][row], metrics[4][row],
+            metrics[5][row], metrics[6][row], metrics[7][row], metrics[8][row], metrics[9][row]);
+    }
+
+    /**
+     * Returns a read-only list view of the table. Rows are materialised on access,
+     * so code written against List&lt;CovidData&gt; keeps working without the table
+     * having to hold one object per row.
+     * @return a list view over every row
+     */
+    public List<CovidData> rows() {
+        return rows;
+    }
+
+    // read-only List adapter over the columns
+    private final class RowView extends AbstractList<CovidData> implements RandomAccess {
+        @Override
+        public CovidData get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException("Row " + index + " out of " + size);
+            }
+            return getRow(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * Accumulates rows into growable column arrays and then freezes them into a table.
+     */
+    public static final class Builder {
+        private int size;
+        private int[] epochDays;
+        private short[] boroughs;
+        private int[][] metrics;
+        private final HashMap<String, Short> boroughOrdinals = new HashMap<>(); // keyed by normalised name
+        private final List<String> boroughNames = new ArrayList<>();
+
+        /**
+         * @param expectedRows initial capacity of the columns
+         */
+        public Builder(int expectedRows) {
+            int capacity = Math.max(16, expectedRows);
+            epochDays = new int[capacity];
+            boroughs = new short[capacity];
+            metrics = new int[CovidMetric.count()][capacity];
+        }
+
+        /**
+         * Appends a row.
+         * @param epochDay the date of the row as an epoch day
+         * @param borough the full borough name
+         * @param values the metric values in CovidMetric order
+         */
+        public void add(long epochDay, String borough, int[] values) {
+            add(epochDay, boroughOrdinal(borough), values);
+        }
+
+        /**
+         * Appends a row whose borough ordinal has already been looked up.
+         * @param epochDay the date of the row as an epoch day
+         * @param boroughOrdinal the ordinal returned by boroughOrdinal
+         * @param values the metric values in CovidMetric order
+         */
+        public void add(long epochDay, int boroughOrdinal, int[] values) {
+            ensureCapacity(size + 1);
+            epochDays[size] = Math.toIntExact(epochDay);
+            boroughs[size] = (short) boroughOrdinal;
+            for (int m = 0; m < metrics.length; m++) {
+                metrics[m][size] = values[m];
+            }
+            size++;
+        }
+
+        /**
+         * Appends every row of another builder, in order. The other builder's borough
+         * ordinals are mapped onto this builder's name table, so builders filled from
+         * consecutive chunks of a file merge into the same table a single builder
+         * would have produced.
+         * @param other the builder whose rows are appended (left unchanged)
+         */
+        public void addAll(Builder other) {
+            short[] ordinals = new short[other.boroughNames.size()];
+            for (int i = 0; i < ordinals.length; i++) {
+                ordinals[i] = (short) boroughOrdinal(other.boroughNames.get(i));
+            }
+            ensureCapacity(size + other.size);
+            System.arraycopy(other.epochDays, 0, epochDays, size, other.size);
+            for (int i = 0; i < other.size; i++) {
+                boroughs[size + i] = ordinals[other.boroughs[i]];
+            }
+            for (int m = 0; m < metrics.length; m++) {
+                System.arraycopy(other.metrics[m], 0, metrics[m], size, other.size);
+            }
+            size += other.size;
+        }
+
+        /**
+         * @return the number of rows added so far
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Sorts the rows by date (keeping the original order of rows on the same day)
+         * and freezes them into a table.
+         * @return an immutable table holding the rows added so far
+         */
+        public CovidTable build() {
+            int[] order = dateOrder();
+            int[] sortedDays = new int[size];
+            short[] sortedBoroughs = new short[size];
+            int[][] columns = new int[metrics.length][size];
+            for (int i = 0; i < size; i++) {
+                int row = order == null ? i : order[i];
+                sortedDays[i] = epochDays[row];
+                sortedBoroughs[i] = boroughs[row];
+                for (int m = 0; m < metrics.length; m++) {
+                    columns[m][i] = metrics[m][row];
+                }
+            }
+            return new CovidTable(size, sortedDays, sortedBoroughs, boroughNames.toArray(new String[0]), columns);
+        }
+
+        // returns the row order that sorts the rows by date, or null if they already are
+        private int[] dateOrder() {
+            boolean sorted = true;
+            int minDay = size == 0 ? 0 : epochDays[0];
+            int maxDay = minDay;
+            for (int i = 1; i < size; i++) {
+                sorted &= epochDays[i - 1] <= epochDays[i];
+                minDay = Math.min(minDay, epochDays[i]);
+                maxDay = Math.max(maxDay, epochDays[i]);
+            }
+            if (sorted) {
+                return null;
+            }
+            int[] order = new int[size];
+            long dayRange = (long) maxDay - minDay + 1;
+            if (dayRange <= 4L * size) {
+                // counting sort on the day: linear and stable, and the data never spans many more days than rows
+                int[] starts = new int[(int) dayRange + 1];
+                for (int i = 0; i < size; i++) {
+                    starts[epochDays[i] - minDay + 1]++;
+                }
+                for (int d = 1; d < starts.length; d++) {
+                    starts[d] += starts[d - 1];
+                }
+                for (int i = 0; i < size; i++) {
+                    order[starts[epochDays[i] - minDay]++] = i;
+                }
+                return order;
+            }
+            // pack (day, original index) into one long so a plain sort is also stable
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) epochDays[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < size; i++) {
+                order[i] = (int) keys[i];
+            }
+            return order;
+        }
+
+        /**
+         * Returns the ordinal of a borough, adding it to the name table if it is new.
+         * @param borough the full borough name
+         * @return the ordinal to store for rows of that borough
+         */
+        public int boroughOrdinal(String borough) {
+            // spelling variants of a name share one ordinal; the first spelling seen is kept
+            String key = BoroughRegistry.normalise(borough);
+            Short ordinal = boroughOrdinals.get(key);
+            if (ordinal == null) {
+                if (boroughNames.size() > Short.MAX_VALUE) {
+                    throw new IllegalStateException("Too many boroughs: " + boroughNames.size());
+                }
+                ordinal = (short) boroughNames.size();
+                boroughOrdinals.put(key, ordinal);
+                boroughNames.add(borough);
+            }
+            return ordinal;
+        }
+
+        private void ensureCapacity(int required) {
+            if (required <= epochDays.length) {
+                return;
+            }
+            int capacity = Math.max(required, epochDays.length + (epochDays.length >> 1));
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            boroughs = Arrays.copyOf(boroughs, capacity);
+            for (int m = 0; m < metrics.length; m++) {
+                metrics[m] = Arrays.copyOf(metrics[m], capacity);
+            }
+        }
+    }
+}
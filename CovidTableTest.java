@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.time.LocalDate;
+import java.util.List;
+
+// unit test to check that the columnar table stores and returns rows unchanged
+class CovidTableTest {
+
+    // mock data in format: CovidData(date, borough, retailAndRecreation, groceryAndPharmacy, parks, transitStations, workplaces, residential, newCases, totalCases, newDeaths, totalDeaths)
+    private final List<CovidData> mockData = List.of(
+        new CovidData("2022-05-02", "Hammersmith And Fulham", -14, -19, 45, -55, -78, 14, 28, 63203, 0, 317),
+        new CovidData("2022-10-15", "Kingston Upon Thames", -20, -3, 69, -5, -1, 1, 11, 64560, 1, 426),
+        new CovidData("2022-10-15", "Hammersmith And Fulham", 0, 0, 0, 0, 0, 0, 21, 96904, 1, 620)
+    );
+
+    // creates test to ensure the row view gives back the same values that were stored
+    @Test
+    public void rowViewMatchesRecords() {
+        CovidTable table = CovidTable.fromRecords(mockData);
+        
+        assertEquals(mockData.size(), table.size(), "Row count is incorrect");
+        assertEquals(2, table.getBoroughCount(), "Boroughs should be stored once each");
+        for (int row = 0; row < mockData.size(); row++) {
+            assertEquals(mockData.get(row).toString(), table.rows().get(row).toString(), "Row " + row + " is incorrect");
+        }
+    }
+    
+    // creates test to ensure the metric columns line up with the CovidData getters
+    @Test
+    public void columnsMatchGetters() {
+        CovidTable table = CovidTable.fromRecords(mockData);
+        
+        for (CovidMetric metric : CovidMetric.values()) {
+            for (int row = 0; row < mockData.size(); row++) {
+                assertEquals(metric.valueOf(mockData.get(row)), table.getColumn(metric)[row], metric + " is incorrect in row " + row);
+            }
+        }
+    }
+    
+    // creates test to ensure unsorted rows are sorted by date and a date range is returned as one block
+    @Test
+    public void dateRangeIsContiguous() {
+        CovidTable table = CovidTable.fromRecords(List.of(
+            new CovidData("2022-10-16", "Hackney", 0, 0, 0, 0, 0, 0, 3, 0, 0, 0),
+            new CovidData("2022-10-14", "Hackney", 0, 0, 0, 0, 0, 0, 1, 0, 0, 0),
+            new CovidData("2022-10-15", "Hackney", 0, 0, 0, 0, 0, 0, 2, 0, 0, 0),
+            new CovidData("2022-10-14", "Camden", 0, 0, 0, 0, 0, 0, 4, 0, 0, 0)
+        ));
+        
+        List<CovidData> range = table.rowsBetween(LocalDate.parse("2022-10-14").toEpochDay(), LocalDate.parse("2022-10-15").toEpochDay());
+        assertEquals(3, range.size(), "Range should hold the rows of both days");
+        assertEquals("Hackney", range.get(0).getBorough(), "Rows on the same day should keep their original order");
+        assertEquals("Camden", range.get(1).getBorough(), "Rows on the same day should keep their original order");
+        assertEquals("2022-10-15", range.get(2).getDate(), "Rows should be sorted by date");
+        assertTrue(table.rowsBetween(LocalDate.parse("2022-10-17").toEpochDay(), LocalDate.parse("2022-10-20").toEpochDay()).isEmpty(), "Range after the data should be empty");
+    }
+    
+    // creates test to ensure dates are parsed once and rows of the same day share one label
+    @Test
+    public void datesAreEpochDays() {
+        CovidTable table = CovidTable.fromRecords(mockData);
+        CovidData first = table.getRow(1);
+        CovidData second = table.getRow(2);
+        
+        assertEquals(LocalDate.parse("2022-10-15"), first.getLocalDate(), "Date is incorrect");
+        assertEquals(LocalDate.parse("2022-10-15").toEpochDay(), first.getEpochDay(), "Epoch day is incorrect");
+        assertSame(first.getDate(), second.getDate(), "Rows of the same day should share their date label");
+        assertEquals("15/10/2022", DateLabels.display(first.getEpochDay()), "Display label is incorrect");
+    }
+
+    // creates test to ensure a borough slice holds the same rows, in the same order, as scanning the table
+    @Test
+    public void boroughSliceMatchesScan() {
+        CovidTable table = CovidTable.fromRecords(List.of(
+            new CovidData("2022-10-16", "Hackney", 0, 0, 0, 0, 0, 0, 3, 0, 0, 0),
+            new CovidData("2022-10-14", "Camden", 0, 0, 0, 0, 0, 0, 4, 0, 0, 0),
+            new CovidData("2022-10-14", "Hackney", 0, 0, 0, 0, 0, 0, 1, 0, 0, 0),
+            new CovidData("2022-10-15", "Hackney", 0, 0, 0, 0, 0, 0, 2, 0, 0, 0),
+            new CovidData("2022-10-15", "Camden", 0, 0, 0, 0, 0, 0, 5, 0, 0, 0)
+        ));
+        int hackney = table.indexOfBorough("Hackney");
+
+        RowSlice slice = table.boroughRowsBetween(hackney, LocalDate.parse("2022-10-15").toEpochDay(), Long.MAX_VALUE);
+        assertEquals(2, slice.size(), "Slice should hold the borough's rows from the start date on");
+        assertEquals(2, table.getRow(slice.rowAt(0)).getNewCases(), "Slice should be in date order");
+        assertEquals(3, slice.asList().get(1).getNewCases(), "Slice should be in date order");
+        assertEquals(3, table.boroughRowsBetween(hackney, Long.MIN_VALUE, Long.MAX_VALUE).size(), "Whole borough slice is incorrect");
+        assertEquals(0, table.boroughRowsBetween(hackney, LocalDate.parse("2022-10-17").toEpochDay(), Long.MAX_VALUE).size(), "Slice after the data should be empty");
+        for (int row = 0; row < table.size(); row++) {
+            RowSlice day = table.boroughRowsBetween(table.getBorough(row), table.getEpochDay(row), table.getEpochDay(row));
+            assertEquals(1, day.size(), "Each borough should have one row per day");
+            assertEquals(row, day.rowAt(0), "Slice row is incorrect");
+        }
+    }
+}
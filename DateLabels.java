@@ -0,0 +1,58 @@
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formatted labels for epoch days, each built once and then shared.
+ * Dates are stored as epoch days everywhere; a label is only needed when a date
+ * is shown, and asking for the same day again returns the same String instance
+ * instead of formatting it again. Days from 1970 to 2099 are cached; other days
+ * are formatted on every call.
+ */
+public final class DateLabels {
+
+    /**
+     * The format used to show dates in the graphs (e.g. 15/10/2022).
+     */
+    public static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private static final int CACHED_DAYS = (int) LocalDate.of(2100, 1, 1).toEpochDay(); // days cached from 1970-01-01
+
+    // filled in lazily; a race only means a label is built twice, Strings are safe to share
+    private static final String[] isoLabels = new String[CACHED_DAYS];
+    private static final String[] displayLabels = new String[CACHED_DAYS];
+
+    private DateLabels() {
+    }
+
+    /**
+     * @param epochDay a date as days since 1970-01-01
+     * @return the date as yyyy-MM-dd, like in the csv file
+     */
+    public static String iso(int epochDay) {
+        if (epochDay < 0 || epochDay >= CACHED_DAYS) {
+            return LocalDate.ofEpochDay(epochDay).toString();
+        }
+        String label = isoLabels[epochDay];
+        if (label == null) {
+            label = LocalDate.ofEpochDay(epochDay).toString();
+            isoLabels[epochDay] = label;
+        }
+        return label;
+    }
+
+    /**
+     * @param epochDay a date as days since 1970-01-01
+     * @return the date as dd/MM/yyyy, for display
+     */
+    public static String display(int epochDay) {
+        if (epochDay < 0 || epochDay >= CACHED_DAYS) {
+            return LocalDate.ofEpochDay(epochDay).format(DISPLAY_FORMAT);
+        }
+        String label = displayLabels[epochDay];
+        if (label == null) {
+            label = LocalDate.ofEpochDay(epochDay).format(DISPLAY_FORMAT);
+            displayLabels[epochDay] = label;
+        }
+        return label;
+    }
+}
@@ -1,14 +1,12 @@
 import java.awt.Desktop;
 import java.net.URI;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
-import javafx.application.Platform;
-import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.scene.Node;
 import javafx.scene.chart.CategoryAxis;
 import javafx.scene.chart.LineChart;
@@ -30,28 +28,48 @@ import javafx.scene.layout.VBox;
  * @version 12
  */
 public class GraphPanel extends VBox {
-    private static final int MAX_DATA_POINTS = 40;
-    private LineChart<String, Number> lineChart;
+    private static final double DEFAULT_CHART_WIDTH = 800; // assumed width before the chart is laid out
+    private static final double PIXELS_PER_POINT = 3; // about one point every few pixels is as much as can be seen
+    private static final int MIN_POINTS = 50;
+    private final CovidDataRepository repository; // shared dataset the series are read from
+    private LineChart<String, Number> lineChart; // kept for the panel's lifetime and updated in place
+    private NumberAxis yAxis;
+    private final XYChart.Series<String, Number> series = new XYChart.Series<>(); // the one series the chart shows
+    private TimeSeriesCanvas canvasView; // draws the full series straight onto a canvas
+    private Node chartNode; // the chart currently shown, either lineChart or canvasView
+    private GraphData lastGraph; // the graph last drawn, redrawn when the renderer changes
+    private ComboBox<String> rendererComboBox;
     private ComboBox<String> boroughComboBox;
-    private List<CovidData> currentData; 
-    private List<CovidData> fullData;
     private LocalDate startDate, endDate;
     private ComboBox<String> graphComboBox;
     private Button showOnMapButton;
     private Button learnMoreButton;
+    private final SeriesCache seriesCache = new SeriesCache(); // daily series already computed, so repeat views skip the sums
+    private final LatestOnlyExecutor graphUpdates = new LatestOnlyExecutor("covid-graph-update"); // computes the series off the FX thread
     
     /**
      * Initialises a "GraphPanel" object.
+     * 
+     * @param repository  The shared dataset the graphs are drawn from.
      */
-    public GraphPanel() {
+    public GraphPanel(CovidDataRepository repository) {
         super(); // calls the constructor of the parent class(VBox)
+        this.repository = repository;
         
         // initialises components
         initialiseGraphComboBox();
         initialiseBoroughComboBox();
+        initialiseRendererComboBox();
         initialGraph();
         initialiseShowOnMapButton();
         initialiseLearnMoreButton();
+        
+        // redraws the graph with a matching number of points when the panel is resized
+        widthProperty().addListener((observable, oldWidth, newWidth) -> {
+            if (maxPoints(oldWidth.doubleValue()) != maxPoints(newWidth.doubleValue())) {
+                updateSelectedGraph();
+            }
+        });
     }
     
     /**
@@ -80,15 +98,7 @@ public class GraphPanel extends VBox {
     private void initialiseBoroughComboBox() {
         boroughComboBox = new ComboBox<>();
         boroughComboBox.getItems().add("All Boroughs");
-        boroughComboBox.getItems().addAll(
-            "Barking And Dagenham", "Barnet", "Bexley", "Brent", "Bromley",
-            "Camden", "Croydon", "Ealing", "Enfield", "Greenwich", "Hackney",
-            "Hammersmith and Fulham", "Haringey", "Harrow", "Havering",
-            "Hillingdon", "Hounslow", "Islington", "Kensington And Chelsea",
-            "Kingston upon Thames", "Lambeth", "Lewisham", "Merton", "Newham",
-            "Redbridge", "Richmond Upon Thames", "Southwark", "Sutton",
-            "Tower Hamlets", "Waltham Forest", "Wandsworth", "Westminster"
-        );
+        boroughComboBox.getItems().addAll(BoroughRegistry.london().getNames()); // replaced by the boroughs in the data once it has loaded
         boroughComboBox.getSelectionModel().selectFirst();
         boroughComboBox.setOnAction(event -> updateSelectedGraph());
         boroughComboBox.setOnAction(event -> {
@@ -98,6 +108,18 @@ public class GraphPanel extends VBox {
         this.getChildren().add(boroughComboBox);
     }
     
+    /**
+     * Initialises the renderer combo box, which chooses how the graph is drawn: as a LineChart
+     * (downsampled to the panel's width) or on a canvas that draws every day and can be panned and zoomed.
+     */
+    private void initialiseRendererComboBox() {
+        rendererComboBox = new ComboBox<>();
+        rendererComboBox.getItems().addAll("Line Chart", "Canvas (fast)");
+        rendererComboBox.getSelectionModel().selectFirst(); // the LineChart stays the default
+        rendererComboBox.setOnAction(event -> showGraph(lastGraph)); // redraws the last graph with the chosen renderer
+        this.getChildren().add(rendererComboBox);
+    }
+    
     /**
      * Initialises and sets up a LineChart to display COVID-19 cases.
      * The initial graph displayed when user comes on to Graph panel.
@@ -105,286 +127,369 @@ public class GraphPanel extends VBox {
     private void initialGraph() {
         // sets up x and y axis
         CategoryAxis xAxis = new CategoryAxis();
-        NumberAxis yAxis = new NumberAxis();
+        yAxis = new NumberAxis();
         xAxis.setLabel("Date");
         yAxis.setLabel("New Cases");
+        // animating hundreds of points on every update only delays the new graph
+        xAxis.setAnimated(false);
+        yAxis.setAnimated(false);
 
-        // LineChart setup
+        // LineChart setup; the same chart and series are reused for every graph
         lineChart = new LineChart<>(xAxis, yAxis);
         lineChart.setTitle("COVID-19 New Cases Over Time");
+        lineChart.setAnimated(false);
+        lineChart.setCreateSymbols(false); // a plain line, without a symbol node per data point
+        lineChart.getData().add(series);
         this.getChildren().add(lineChart); // adds the line chart to the panel
+        chartNode = lineChart;
+        
+        // the canvas is only added to the panel when it is chosen as the renderer
+        canvasView = new TimeSeriesCanvas();
+        VBox.setVgrow(canvasView, Priority.ALWAYS);
     }
     
     /**
-     * Updates the selected graph based on the data, start date, end date and selected borough.
+     * Updates the selected graph based on the start date, end date and selected borough.
+     * The choices are read here on the FX thread, the series is computed on a background
+     * thread from the dataset's range sums, and only the newest result is drawn.
      */
     public void updateSelectedGraph() {
-        if (fullData == null || startDate == null || endDate == null) {
-            return; // no data to update the graph with
+        if (startDate == null || endDate == null) {
+            return; // no date range to update the graph with
         }
     
-        System.out.println("Current data size before filtering: " + currentData.size());
-    
-        this.currentData = new ArrayList<>(fullData);
-
+        CovidDataset dataset = repository.getDataset();
+        String graph = graphComboBox.getValue();
         String selectedBorough = boroughComboBox.getValue();
-        List<CovidData> filteredAndSampledData = filterByBoroughAndSampleData(currentData, selectedBorough, startDate, endDate);
+        LocalDate start = startDate;
+        LocalDate end = endDate;
+        int maxPoints = maxPoints();
+        if (graph == null || selectedBorough == null) {
+            return; // the choices are being replaced
+        }
+        if (!"All Boroughs".equals(selectedBorough) && dataset.getTable().indexOfBorough(selectedBorough) < 0) {
+            showGraphError("Borough not in the data: " + selectedBorough); // checked here, so the old graph is never left up without a word
+            return;
+        }
+        graphUpdates.submit(() -> computeGraph(seriesCache, dataset, graph, selectedBorough, start, end, maxPoints), this::showGraph, e -> {
+            e.printStackTrace();
+            showGraphError(e.getMessage());
+        });
+    }
+    
+    /**
+     * Tells the user the graph could not be drawn, leaving the previous graph in place.
+     * 
+     * @param message  What went wrong.
+     */
+    private void showGraphError(String message) {
+        Alert alert = new Alert(AlertType.ERROR);
+        alert.setTitle("Graph Error");
+        alert.setHeaderText("The graph could not be drawn.");
+        alert.setContentText(message);
+        alert.show();
+    }
+    
+    /**
+     * Works out how many points the chart can usefully show: about one every few pixels
+     * of its width (the chart fills the panel's width).
+     * 
+     * @return  The largest number of points to draw.
+     */
+    private int maxPoints() {
+        return maxPoints(getWidth());
+    }
+    
+    /**
+     * @param width  The width of the panel, or 0 before it has been laid out.
+     * @return       The largest number of points to draw at that width.
+     */
+    private static int maxPoints(double width) {
+        return Math.max(MIN_POINTS, (int) ((width > 0 ? width : DEFAULT_CHART_WIDTH) / PIXELS_PER_POINT));
+    }
+    
+    /**
+     * Computes the points of a graph without touching the chart, so it can run off the FX thread.
+     * The daily series is taken from the cache when the same graph, borough and range were shown before.
+     * 
+     * @param cache            The cache of computed series.
+     * @param dataset          The dataset to read the series from.
+     * @param graph            The selected type of graph.
+     * @param selectedBorough  The selected borough.
+     * @param startDate        The start date of the data range to be displayed.
+     * @param endDate          The end date of the data range to be displayed.
+     * @param maxPoints        The largest number of points to draw; longer series are downsampled.
+     * @return                 The graph to draw, or null if the graph type is unknown.
+     */
+    static GraphData computeGraph(SeriesCache cache, CovidDataset dataset, String graph, String selectedBorough, LocalDate startDate, LocalDate endDate, int maxPoints) {
+        int borough = boroughIndex(dataset, selectedBorough);
+        RangeSums sums = dataset.getRangeSums();
+        boolean all = "All Boroughs".equals(selectedBorough);
 
-        // method now calls the graph update methods with the correctly filtered and sampled data
-        switch (graphComboBox.getValue()) {
+        // calls the graph methods with the range sums and the selected borough
+        switch (graph) {
             case "New Cases Over Time":
-                updateGraph(filteredAndSampledData, startDate, endDate);
-                break;
+                return newCasesGraph(cache, sums, borough, all ? "All Boroughs" : selectedBorough, startDate, endDate, maxPoints);
             case "Total Deaths Over Time":
-                updateTotalDeaths(filteredAndSampledData, startDate, endDate);
-                break;
+                return totalDeathsGraph(cache, sums, borough, all ? "All Boroughs" : selectedBorough + " - Total Deaths", startDate, endDate, maxPoints);
             case "Retail & Recreation Mobility Change":
-                updateRRMobilityTrend(filteredAndSampledData, startDate, endDate);
-                break;
+                return retailRecreationGraph(cache, sums, borough, (all ? "All Boroughs" : selectedBorough) + " - Retail & Recreation", startDate, endDate, maxPoints);
             case "Grocery & Pharmacy Mobility Change":
-                updateGPMobilityTrend(filteredAndSampledData, startDate, endDate);
-                break;
+                return groceryPharmacyGraph(cache, sums, borough, (all ? "All Boroughs" : selectedBorough) + " - Grocery & Pharmacy", startDate, endDate, maxPoints);
             case "Rate of Case Change":
-                updateRateOfCaseChange(filteredAndSampledData, startDate, endDate);
-                break;
+                return rateOfCaseChangeGraph(cache, sums, borough, "Rate of Change - " + (all ? "All Boroughs" : selectedBorough), startDate, endDate, maxPoints);
             default:
-                break;
+                return null;
         }
     }
     
     /**
-     * Updates the line chart with new data for the number of new COVID_19 cases over time.
+     * Computes the graph of the number of new COVID_19 cases over time.
      * 
-     * @param allData    The list of COVID-19 data to be displayed on the chart.
-     * @param startDate  The start date of the data range to be displayed.
-     * @param endDate    The end date of the data range to be displayed.
+     * @param cache       The cache of computed series.
+     * @param sums        The range sums to read the daily series from.
+     * @param borough     The borough index (or the "all boroughs" index).
+     * @param seriesName  The name of the series.
+     * @param startDate   The start date of the data range to be displayed.
+     * @param endDate     The end date of the data range to be displayed.
+     * @param maxPoints   The largest number of points to draw.
+     * @return            The graph to draw.
      */
-    private void updateGraph(List<CovidData> allData, LocalDate startDate, LocalDate endDate) {
-        // initialises the graph with the appropiate title and axis labels
-        initialiseGraph("COVID-19 New Cases Over Time", "New Cases");
-        
-        // update instance variables with provided data
-        this.currentData = allData; 
-        this.startDate = startDate; 
-        this.endDate = endDate;
-        
-        // gets the selected borough from the combo box
-        String selectedBorough = boroughComboBox.getValue();
-        
-        // filters the data based on selected borough
-        List<CovidData> filteredData;
-        if (!"All Boroughs".equals(selectedBorough)) {
-            filteredData = allData.stream()
-                .filter(data -> data.getBorough().equals(selectedBorough))
-                .collect(Collectors.toList());
-        } else {
-            filteredData = new ArrayList<>(allData);  
-        }
-        
-        lineChart.getData().clear(); // clears previous data from the line chart
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName(selectedBorough.equals("All Boroughs") ? "All Boroughs" : selectedBorough);
-        
-        // iterates over each date within the specified range
-        LocalDate tempDate = startDate;
-        while (!tempDate.isAfter(endDate)) {
-            final LocalDate currentDate = tempDate;
-            // calculates the sum of the new cases for the current date
-            int sumNewCases = filteredData.stream()
-                                       .filter(data -> LocalDate.parse(data.getDate()).equals(currentDate))
-                                       .mapToInt(CovidData::getNewCases)
-                                       .sum();
-                                
-            series.getData().add(new XYChart.Data<>(currentDate.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")), sumNewCases)); // adds the data points to the series  
-            tempDate = tempDate.plusDays(1); // moves to the next day
-        }
-        
-        lineChart.getData().add(series); // adds the series to the line chart 
-        applyStyleToSeries(series); // applies styling to the series
+    private static GraphData newCasesGraph(SeriesCache cache, RangeSums sums, int borough, String seriesName, LocalDate startDate, LocalDate endDate, int maxPoints) {
+        // reads the sum of the new cases for every date within the specified range
+        double[] newCases = cache.get(new SeriesCache.Key(sums, "New Cases", borough, startDate.toEpochDay(), endDate.toEpochDay()),
+            day -> sums.sum(CovidMetric.NEW_CASES, borough, day));
+        return new GraphData("COVID-19 New Cases Over Time", "New Cases", seriesName,
+                             newCases, startDate.toEpochDay(), maxPoints);
     }
     
     /**
-     * Updates the line chart with new data for total deaths over time.
+     * Computes the graph of total deaths over time.
      * 
-     * @param allData    The list of COVID-19 data to be displayed on the chart.
-     * @param startDate  The start date of the data range to be displayed.
-     * @param endDate    The end date of the data range to be displayed.
-     */
-    private void updateTotalDeaths(List<CovidData> allData, LocalDate startDate, LocalDate endDate) {
-        initialiseGraph("COVID-19 Total Deaths Over Time", "Total Deaths");
-        this.currentData = allData; 
-        this.startDate = startDate; 
-        this.endDate = endDate;
-        String selectedBorough = boroughComboBox.getValue();
-        List<CovidData> filteredData = filterByBorough(allData, selectedBorough);
-        
-        lineChart.getData().clear();
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName(selectedBorough.equals("All Boroughs") ? "All Boroughs" : selectedBorough + " - Total Deaths");
-
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            final LocalDate currentDate = date;
-            int totalDeaths = filteredData.stream()
-                                          .filter(data -> LocalDate.parse(data.getDate()).equals(currentDate))
-                                          .mapToInt(CovidData::getTotalDeaths)
-                                          .sum();
-            series.getData().add(new XYChart.Data<>(currentDate.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")), totalDeaths));
-        }
-
-        lineChart.getData().add(series);
-        applyStyleToSeries(series);
+     * @param cache       The cache of computed series.
+     * @param sums        The range sums to read the daily series from.
+     * @param borough     The borough index (or the "all boroughs" index).
+     * @param seriesName  The name of the series.
+     * @param startDate   The start date of the data range to be displayed.
+     * @param endDate     The end date of the data range to be displayed.
+     * @param maxPoints   The largest number of points to draw.
+     * @return            The graph to draw.
+     */
+    private static GraphData totalDeathsGraph(SeriesCache cache, RangeSums sums, int borough, String seriesName, LocalDate startDate, LocalDate endDate, int maxPoints) {
+        double[] totalDeaths = cache.get(new SeriesCache.Key(sums, "Total Deaths", borough, startDate.toEpochDay(), endDate.toEpochDay()),
+            day -> sums.sum(CovidMetric.TOTAL_DEATHS, borough, day));
+        return new GraphData("COVID-19 Total Deaths Over Time", "Total Deaths", seriesName,
+                             totalDeaths, startDate.toEpochDay(), maxPoints);
     }
     
     /**
-     * Updates the line chart with new data for the Retail & Recreation Mobility Change.       
+     * Computes the graph of the Retail & Recreation Mobility Change.
      * 
-     * @param allData    The list of COVID-19 data to be displayed on the chart.
-     * @param startDate  The start date of the data range to be displayed.
-     * @param endDate    The end date of the data range to be displayed.
+     * @param cache       The cache of computed series.
+     * @param sums        The range sums to read the daily series from.
+     * @param borough     The borough index (or the "all boroughs" index).
+     * @param seriesName  The name of the series.
+     * @param startDate   The start date of the data range to be displayed.
+     * @param endDate     The end date of the data range to be displayed.
+     * @param maxPoints   The largest number of points to draw.
+     * @return            The graph to draw.
      */
-    private void updateRRMobilityTrend(List<CovidData> allData, LocalDate startDate, LocalDate endDate) {
-        this.currentData = allData;
-        this.startDate = startDate;
-        this.endDate = endDate;
-        String selectedBorough = boroughComboBox.getValue();
-        List<CovidData> filteredData = filterByBorough(allData, selectedBorough);
-        initialiseGraph("Retail & Recreation Mobility Change", "Mobility Change (%)");
-    
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName(selectedBorough.equals("All Boroughs") ? "All Boroughs - Retail & Recreation" : selectedBorough + " - Retail & Recreation");
-    
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            final LocalDate currentDate = date;
-            double averageRetailRecreation = filteredData.stream()
-                                                         .filter(data -> LocalDate.parse(data.getDate()).equals(currentDate))
-                                                         .mapToInt(CovidData::getRetailRecreationGMR)
-                                                         .average()
-                                                         .orElse(0); // assumes 0 if no data available
-    
-            series.getData().add(new XYChart.Data<>(currentDate.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")), averageRetailRecreation));
-        }
-    
-        lineChart.getData().add(series);
-        applyStyleToSeries(series);
-        // adjusts the yAxis label for mobility trends
-        ((NumberAxis) lineChart.getYAxis()).setLabel("Retail & Recreation Mobility Change (%)");
+    private static GraphData retailRecreationGraph(SeriesCache cache, RangeSums sums, int borough, String seriesName, LocalDate startDate, LocalDate endDate, int maxPoints) {
+        // days with no data average to 0
+        double[] averageRetailRecreation = cache.get(new SeriesCache.Key(sums, "Retail & Recreation", borough, startDate.toEpochDay(), endDate.toEpochDay()),
+            day -> sums.average(CovidMetric.RETAIL_RECREATION_GMR, borough, day));
+        return new GraphData("Retail & Recreation Mobility Change", "Retail & Recreation Mobility Change (%)", seriesName,
+                             averageRetailRecreation, startDate.toEpochDay(), maxPoints);
     }
 
     /**
-     * Updates the line chart with new data for the Grocery & Pharmacy Mobility Change.
+     * Computes the graph of the Grocery & Pharmacy Mobility Change.
      * 
-     * @param allData    The list of COVID-19 data to be displayed on the chart.
-     * @param startDate  The start date of the data range to be displayed.
-     * @param endDate    The end date of the data range to be displayed.
+     * @param cache       The cache of computed series.
+     * @param sums        The range sums to read the daily series from.
+     * @param borough     The borough index (or the "all boroughs" index).
+     * @param seriesName  The name of the series.
+     * @param startDate   The start date of the data range to be displayed.
+     * @param endDate     The end date of the data range to be displayed.
+     * @param maxPoints   The largest number of points to draw.
+     * @return            The graph to draw.
      */
-    private void updateGPMobilityTrend(List<CovidData> allData, LocalDate startDate, LocalDate endDate) {
-        this.currentData = allData;
-        this.startDate = startDate;
-        this.endDate = endDate;
-        String selectedBorough = boroughComboBox.getValue();
-        List<CovidData> filteredData = filterByBorough(allData, selectedBorough);
-    
-        initialiseGraph("Grocery & Pharmacy Mobility Change", "Mobility Change (%)");
-    
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName(selectedBorough.equals("All Boroughs") ? "All Boroughs - Grocery & Pharmacy" : selectedBorough + " - Grocery & Pharmacy");
+    private static GraphData groceryPharmacyGraph(SeriesCache cache, RangeSums sums, int borough, String seriesName, LocalDate startDate, LocalDate endDate, int maxPoints) {
+        double[] averageGPMobility = cache.get(new SeriesCache.Key(sums, "Grocery & Pharmacy", borough, startDate.toEpochDay(), endDate.toEpochDay()),
+            day -> sums.average(CovidMetric.GROCERY_PHARMACY_GMR, borough, day));
+        return new GraphData("Grocery & Pharmacy Mobility Change", "Mobility Change (%)", seriesName,
+                             averageGPMobility, startDate.toEpochDay(), maxPoints);
+    }
     
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            final LocalDate currentDate = date;
-            double averageGPMobility = filteredData.stream()
-                                                   .filter(data -> LocalDate.parse(data.getDate()).equals(currentDate))
-                                                   .mapToInt(CovidData::getGroceryPharmacyGMR)
-                                                   .average()
-                                                   .orElse(0);
+    /**
+     * Computes the graph of the rate of case change.
+     * 
+     * @param cache       The cache of computed series.
+     * @param sums        The range sums to read the daily series from.
+     * @param borough     The borough index (or the "all boroughs" index).
+     * @param seriesName  The name of the series.
+     * @param startDate   The start date of the data range to be displayed.
+     * @param endDate     The end date of the data range to be displayed.
+     * @param maxPoints   The largest number of points to draw.
+     * @return            The graph to draw.
+     */
+    private static GraphData rateOfCaseChangeGraph(SeriesCache cache, RangeSums sums, int borough, String seriesName, LocalDate startDate, LocalDate endDate, int maxPoints) {
+        // the first day has no previous day to compare with, so the series starts on the second day
+        double[] rateOfChange = cache.get(new SeriesCache.Key(sums, "Rate of Case Change", borough, startDate.toEpochDay() + 1, endDate.toEpochDay()),
+            day -> sums.sum(CovidMetric.NEW_CASES, borough, day) - sums.sum(CovidMetric.NEW_CASES, borough, day - 1));
+        return new GraphData("COVID-19 Rate of Case Change", "Rate of Change", seriesName,
+                             rateOfChange, startDate.toEpochDay() + 1, maxPoints);
+    }
     
-            series.getData().add(new XYChart.Data<>(currentDate.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")), averageGPMobility));
+    /**
+     * Turns a full daily series into chart points. The series is aggregated for every day
+     * first and only then reduced to maxPoints with LTTB, so the peaks stay on the chart.
+     * 
+     * @param values     One value per day.
+     * @param firstDay   The epoch day of the first value.
+     * @param maxPoints  The largest number of points to keep.
+     * @return           The points to draw.
+     */
+    private static List<XYChart.Data<String, Number>> points(double[] values, long firstDay, int maxPoints) {
+        int[] kept = SeriesDownsampler.lttb(values, maxPoints);
+        List<XYChart.Data<String, Number>> points = new ArrayList<>(kept.length);
+        for (int i : kept) {
+            points.add(new XYChart.Data<>(formatDate(firstDay + i), values[i])); // adds the data points to the series
         }
-    
-        lineChart.getData().add(series);
-        applyStyleToSeries(series);
+        return points;
     }
     
     /**
-     * Updates the line chart with new data for the rate of case change.
+     * Draws a computed graph, replacing the current one. Runs on the FX thread.
      * 
-     * @param allData    The list of COVID-19 data to be displayed on the chart.
-     * @param startDate  The start date of the data range to be displayed.
-     * @param endDate    The end date of the data range to be displayed.
+     * @param graph  The graph to draw (nothing is drawn if it is null).
      */
-    private void updateRateOfCaseChange(List<CovidData> allData, LocalDate startDate, LocalDate endDate) {
-        this.currentData = allData;
-        this.startDate = startDate;
-        this.endDate = endDate;
-        String selectedBorough = boroughComboBox.getValue();
-        List<CovidData> filteredData = filterByBorough(allData, selectedBorough);
-    
-        initialiseGraph("COVID-19 Rate of Case Change", "Rate of Change");
+    private void showGraph(GraphData graph) {
+        if (graph == null) {
+            return;
+        }
+        lastGraph = graph;
+        if ("Canvas (fast)".equals(rendererComboBox.getValue())) {
+            // the canvas thins the points per pixel itself, so it gets the whole series
+            canvasView.setSeries(graph.title, graph.yAxisLabel,
+                                 List.of(new TimeSeriesCanvas.Series(graph.seriesName, graph.firstDay, graph.values)));
+            showChart(canvasView);
+            return;
+        }
+        // updates the chart's title, axis label and series in place
+        lineChart.setTitle(graph.title);
+        yAxis.setLabel(graph.yAxisLabel);
+        series.setName(graph.seriesName);
+        updateSeriesData(graph.points);
+        showChart(lineChart);
+    }
     
-        XYChart.Series<String, Number> series = new XYChart.Series<>();
-        series.setName(selectedBorough.equals("All Boroughs") ? "Rate of Change - All Boroughs" : "Rate of Change - " + selectedBorough);
+    /**
+     * Replaces the series' points while touching as few of them as possible. If the dates are
+     * the same as before (another borough or graph over the same range), only the values that
+     * changed are set. Otherwise the points whose date is already on the chart are reused and
+     * the list is replaced in one bulk change.
+     * 
+     * @param points  The new points, in date order.
+     */
+    private void updateSeriesData(List<XYChart.Data<String, Number>> points) {
+        ObservableList<XYChart.Data<String, Number>> data = series.getData();
+        if (sameDates(data, points)) {
+            for (int i = 0; i < points.size(); i++) {
+                setValue(data.get(i), points.get(i).getYValue());
+            }
+            return;
+        }
+        
+        Map<String, XYChart.Data<String, Number>> shown = new HashMap<>();
+        for (XYChart.Data<String, Number> point : data) {
+            shown.put(point.getXValue(), point);
+        }
+        List<XYChart.Data<String, Number>> merged = new ArrayList<>(points.size());
+        for (XYChart.Data<String, Number> point : points) {
+            XYChart.Data<String, Number> existing = shown.get(point.getXValue());
+            if (existing == null) {
+                merged.add(point);
+            } else {
+                setValue(existing, point.getYValue());
+                merged.add(existing);
+            }
+        }
+        data.setAll(merged);
+    }
     
-        Integer previousDayCases = null;
-        for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-            final LocalDate currentDate = date;
-            int currentDayCases = filteredData.stream()
-                                              .filter(data -> LocalDate.parse(data.getDate()).equals(currentDate))
-                                              .mapToInt(CovidData::getNewCases)
-                                              .sum();
-            if (previousDayCases != null) {
-                int rateOfChange = currentDayCases - previousDayCases;
-                series.getData().add(new XYChart.Data<>(currentDate.format(java.time.format.DateTimeFormatter.ofPattern("dd/MM/yyyy")), rateOfChange));
+    /**
+     * @param data    The points on the chart.
+     * @param points  The new points.
+     * @return        Whether both have the same dates in the same order.
+     */
+    private static boolean sameDates(List<XYChart.Data<String, Number>> data, List<XYChart.Data<String, Number>> points) {
+        if (data.size() != points.size()) {
+            return false;
+        }
+        for (int i = 0; i < points.size(); i++) {
+            if (!data.get(i).getXValue().equals(points.get(i).getXValue())) {
+                return false;
             }
-            previousDayCases = currentDayCases;
         }
+        return true;
+    }
     
-        lineChart.getData().add(series);
-        applyStyleToSeries(series);
+    // sets a point's value only if it changed, so unchanged points cause no layout work
+    private static void setValue(XYChart.Data<String, Number> point, Number value) {
+        if (!value.equals(point.getYValue())) {
+            point.setYValue(value);
+        }
     }
     
     /**
-     * Filters the COVID-19 data by the selectded borough.
-     * 
-     * @param allData          The list of COVID-19 data to filter.
-     * @param selectedBorough  The selected borough.
-     * @return                 The filtered list of COVID-19 data.
-     */
-    private List<CovidData> filterByBorough(List<CovidData> allData, String selectedBorough) {
-        if (!"All Boroughs".equals(selectedBorough)) {
-            // filters the data to include only the selected borough
-            return allData.stream()
-                          .filter(data -> data.getBorough().equals(selectedBorough))
-                          .collect(Collectors.toList());
-        } else {
-            // returns the entire data if "All Boroughs" is selected
-            return new ArrayList<>(allData);  
+     * A graph computed off the FX thread, ready to be drawn.
+     */
+    static final class GraphData {
+        final String title;
+        final String yAxisLabel;
+        final String seriesName;
+        final double[] values; // one value per day
+        final long firstDay; // epoch day of the first value
+        final List<XYChart.Data<String, Number>> points; // the values downsampled for the LineChart
+        
+        GraphData(String title, String yAxisLabel, String seriesName, double[] values, long firstDay, int maxPoints) {
+            this.title = title;
+            this.yAxisLabel = yAxisLabel;
+            this.seriesName = seriesName;
+            this.values = values;
+            this.firstDay = firstDay;
+            this.points = points(values, firstDay, maxPoints);
         }
     }
     
     /**
-     * Filters the COVID-19 data by the selected borough and samples the data within the specified date range.
-     * Sampling ensures that the number of data points does not exceed the maximum data points limit.
+     * Finds the index of the selectded borough.
      * 
-     * @param allData          The list of COVID-19 data to filter and sample.
+     * @param dataset          The dataset the borough belongs to.
      * @param selectedBorough  The selected borough.
-     * @param start            The start date of the sampling period.
-     * @param end              The end date of the sampling period.
-     * @return                 The filtered and sampled list of COVID-19 data.
-     */
-    private List<CovidData> filterByBoroughAndSampleData(List<CovidData> allData, String selectedBorough, LocalDate start, LocalDate end) {
-        List<CovidData> filteredData = filterByBorough(allData, selectedBorough); // filters the covid-19 data by the selected borough 
-        long daysBetween = ChronoUnit.DAYS.between(start, end); // calculates the number of days between the start and end dates
-        int sampleInterval = (int) Math.ceil((double) daysBetween / MAX_DATA_POINTS); // calculates the sample interval to ensure the number of data points does not exceed the maximum limit
-        List<CovidData> sampledData = new ArrayList<>(); // creayes a list to store the sampled data
-        
-        // iterates over the filtered data with the specified sample interval
-        for (int i = 0; i < filteredData.size(); i += sampleInterval) {
-            LocalDate dataDate = LocalDate.parse(filteredData.get(i).getDate(), DateTimeFormatter.ofPattern("yyyy-MM-dd"));
-            // checks if the data date falls within specified date range
-            if (!dataDate.isBefore(start) && !dataDate.isAfter(end)) {
-                sampledData.add(filteredData.get(i)); // adds the data to the sampled data list
-            }
+     * @return                 The borough's index, or the "all boroughs" index.
+     * @throws IllegalArgumentException if the borough is not in the data, rather than drawing an empty graph
+     */
+    private static int boroughIndex(CovidDataset dataset, String selectedBorough) {
+        if ("All Boroughs".equals(selectedBorough)) {
+            return dataset.getRangeSums().allBoroughs(); // London-wide roll-up
+        }
+        int borough = dataset.getTable().indexOfBorough(selectedBorough);
+        if (borough < 0) {
+            throw new IllegalArgumentException("Borough not in the data: " + selectedBorough);
         }
-        return sampledData;
+        return borough;
+    }
+    
+    /**
+     * Formats a date for the x-axis. Labels are cached, so redrawing a graph does not format the dates again.
+     * 
+     * @param epochDay  The date to format, as an epoch day.
+     * @return          The date as dd/MM/yyyy.
+     */
+    private static String formatDate(long epochDay) {
+        return DateLabels.display((int) epochDay);
     }
 
     /**
@@ -400,46 +505,15 @@ public class GraphPanel extends VBox {
     }
     
     /**
-     * Styles the series in the LineChart.
-     * 
-     * @param series The series to which the style will be applied.
-     */
-    private void applyStyleToSeries(XYChart.Series<String, Number> series) {
-        // runs the style applciation on the JavaFX Application Threa
-        Platform.runLater(() -> {
-            // loops through each data point in the series
-            for (XYChart.Data<String, Number> data : series.getData()) {
-                // looks up the chart-line-symbol node for each data point
-                Node symbol = data.getNode().lookup(".chart-line-symbol");
-                if (symbol != null) {
-                    // if the symbol node exists, set its background color to transparent
-                    symbol.setStyle("-fx-background-color: transparent, transparent;"); 
-                }
-            }
-        });
-    }
-    
-    /**
-     * Initialises a new LineChart with the specified title and y-axis label, replacing any existing LineChart in the GraphPanel.
+     * Shows a chart in place of the one currently shown, keeping its position above the buttons.
      * 
-     * @param title      The title of the LineChart.
-     * @param yAxisLabel The label for the y-axis of the LineChart.
+     * @param chart  The chart to show.
      */
-    private void initialiseGraph(String title, String yAxisLabel) {
-        this.getChildren().remove(lineChart); // removes any existing LineChart from the GraphPanel
-    
-        // creates new axes for the LineChart
-        CategoryAxis xAxis = new CategoryAxis();
-        NumberAxis yAxis = new NumberAxis();
-        xAxis.setLabel("Date");
-        yAxis.setLabel(yAxisLabel);
-    
-        // creates a new LineChart with the specified axes and title
-        lineChart = new LineChart<>(xAxis, yAxis);
-        lineChart.setTitle(title);
-        
-        // adds the new LineChart to the GraphPanel
-        this.getChildren().add(lineChart);
+    private void showChart(Node chart) {
+        if (chart != chartNode) {
+            this.getChildren().set(this.getChildren().indexOf(chartNode), chart);
+            chartNode = chart;
+        }
     }
     
     /**
@@ -487,25 +561,34 @@ public class GraphPanel extends VBox {
     }
     
     /**
-     * Updates the start date, end date, current data, and full data with the provided values, then triggers an update of the selected graph.
+     * Updates the start date and end date with the provided values, then triggers an update of the selected graph.
      * 
      * @param startDate     The new start date for the graph data.
      * @param endDate       The new end date for the graph data.
-     * @param filteredData  The filtered data to be displayed on the graph.
      */
-    public void updateDateAndGraph(LocalDate startDate, LocalDate endDate, List<CovidData> filteredData) {
+    public void updateDateAndGraph(LocalDate startDate, LocalDate endDate) {
         // updates start date and end date
         this.startDate = startDate;
         this.endDate = endDate;
         
-        // updates current data and full data with a copy of the filtered data
-        this.currentData = new ArrayList<>(filteredData); 
-        this.fullData = new ArrayList<>(filteredData); 
-        
         // triggers an update of the selected graph
         updateSelectedGraph(); 
     }
     
+    /**
+     * Stops the background thread that computes the graphs, dropping any graph still being computed.
+     */
+    public void stopUpdates() {
+        graphUpdates.shutdown();
+    }
+    
+    /**
+     * @return  The cache of computed series, whose hit and miss counts show how often graphs are recomputed.
+     */
+    public SeriesCache getSeriesCache() {
+        return seriesCache;
+    }
+    
     /**
      * Initialises the "Learn More" button, which provides information about COVID-19 prevention
      * when clicked. The button is added to the bottom of the panel and occupies vertical space.
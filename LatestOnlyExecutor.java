@@ -0,0 +1,93 @@
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import javafx.application.Platform;
+
+/**
+ * Runs UI recomputations on a background thread when only the newest request matters.
+ * Every submission supersedes the ones before it: a computation that is still waiting
+ * or running is cancelled, and a result that arrives after a newer submission is
+ * dropped instead of being published. Results, and the errors of computations that
+ * fail, are published on the JavaFX Application Thread, so fast clicking never queues
+ * up stale work there.
+ */
+public final class LatestOnlyExecutor {
+
+    private final ExecutorService executor;
+    private final Executor publisher; // runs the result and error callbacks, normally on the FX thread
+    private final AtomicLong generation = new AtomicLong(); // number of the newest submission
+    private Future<?> running; // the newest computation, cancelled when a newer one is submitted
+
+    /**
+     * @param threadName name of the worker thread
+     */
+    public LatestOnlyExecutor(String threadName) {
+        this(threadName, Platform::runLater);
+    }
+
+    /**
+     * @param threadName name of the worker thread
+     * @param publisher runs the result and error callbacks (Platform::runLater in the application)
+     */
+    public LatestOnlyExecutor(String threadName, Executor publisher) {
+        this.publisher = publisher;
+        executor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, threadName);
+            thread.setDaemon(true); // never keeps the application running
+            return thread;
+        });
+    }
+
+    /**
+     * Computes a result in the background and publishes it on the FX thread,
+     * unless another computation has been submitted in the meantime.
+     * @param compute the work to do off the FX thread; must not touch the scene graph
+     * @param publish applies the result on the FX thread
+     * @param onError shows the error on the FX thread if the computation fails
+     */
+    public synchronized <T> void submit(Supplier<T> compute, Consumer<T> publish, Consumer<RuntimeException> onError) {
+        long ticket = generation.incrementAndGet();
+        if (running != null) {
+            running.cancel(true); // superseded, interrupt it if it has already started
+        }
+        running = executor.submit(() -> {
+            if (generation.get() != ticket) {
+                return; // superseded before it started
+            }
+            try {
+                T result = compute.get();
+                publish(() -> publish.accept(result), ticket);
+            } catch (RuntimeException e) {
+                publish(() -> onError.accept(e), ticket);
+            }
+        });
+    }
+
+    // hands a callback to the publisher, to run only if its submission is still the newest
+    private void publish(Runnable callback, long ticket) {
+        try {
+            publisher.execute(() -> {
+                if (generation.get() == ticket) {
+                    callback.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            // the publisher could not run the callback (e.g. the FX toolkit is not running), so nothing else can show it
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    /**
+     * Drops any pending result and stops the worker thread.
+     */
+    public synchronized void shutdown() {
+        generation.incrementAndGet();
+        executor.shutdownNow();
+    }
+}
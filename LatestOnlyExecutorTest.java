@@ -0,0 +1,60 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// unit test to check that only the newest background recomputation is published
+class LatestOnlyExecutorTest {
+
+    // creates test to ensure results of superseded requests are never published
+    @Test
+    public void publishesOnlyLatestResult() throws Exception {
+        LatestOnlyExecutor executor = new LatestOnlyExecutor("test-update", Runnable::run); // publishes on the worker, no FX toolkit needed
+        List<Integer> published = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        
+        for (int i = 0; i < 20; i++) {
+            int request = i;
+            executor.submit(() -> {
+                try {
+                    Thread.sleep(20); // slow enough for the next request to arrive while this one runs
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return request;
+            }, result -> {
+                published.add(result);
+                if (result == 19) {
+                    done.countDown();
+                }
+            }, error -> fail("No request should fail: " + error));
+        }
+        
+        assertTrue(done.await(5, TimeUnit.SECONDS), "The latest result should be published");
+        Thread.sleep(100); // give any stale result the chance to (wrongly) arrive
+        executor.shutdown();
+        assertEquals(List.of(19), published, "Only the latest request should be published");
+    }
+
+    // creates test to ensure a failing computation reaches the error callback instead of being dropped
+    @Test
+    public void publishesErrors() throws Exception {
+        LatestOnlyExecutor executor = new LatestOnlyExecutor("test-error", Runnable::run);
+        List<RuntimeException> errors = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        
+        executor.submit(() -> {
+            throw new IllegalArgumentException("Borough not in the data");
+        }, result -> fail("A failed request should not publish a result"), error -> {
+            errors.add(error);
+            done.countDown();
+        });
+        
+        assertTrue(done.await(5, TimeUnit.SECONDS), "The error should be published");
+        executor.shutdown();
+        assertEquals(1, errors.size(), "Number of errors is incorrect");
+        assertEquals("Borough not in the data", errors.get(0).getMessage(), "Error is incorrect");
+    }
+}
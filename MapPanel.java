@@ -1,6 +1,7 @@
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.application.Application;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
 import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
@@ -20,24 +21,49 @@ import javafx.scene.layout.StackPane;
 import javafx.stage.Stage;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
-import java.util.Comparator;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.shape.Rectangle;
 import javafx.geometry.Insets;
+import javafx.util.Duration;
 import java.util.Map;
 import java.util.List;
 
 // @author Aïda Tadlaoui, Saruta Kittipattananon, Chen Wang and Isabella Landgrebe
 
 public class MapPanel extends Pane {
+    private static final double MAP_WIDTH = 600; // width the map is shown at, and decoded at
+    private static final int FRAMES_PER_SECOND = 12; // days shown per second when the time-lapse plays
+    private static final Color[] COLOUR_LEVELS = new Color[256]; // shades from the lowest to the highest death rate, made once
     private ImageView mapImageView; // holds the map image
     private HashMap<String, Polygon> boroughPolygons;
-    private HashMap<String, Integer> boroughDeathRates; // stores death rates for each borough
+    private HashMap<String, Long> boroughDeathRates; // stores death rates for each borough
     private LocalDate fromDate; // start date to filter data
     private LocalDate toDate; // end date to filter data
     private Button keyButton; // button to show the colour key
+    private final CovidDataRepository repository; // shared dataset queried when a borough is clicked
+    private final HashMap<String, BoroughRowIndex> detailIndexes = new HashMap<>(); // sorted row orders of each borough shown in detail, for the selected dates
+    private CovidDataset detailDataset; // dataset the detail indexes were made from
+    
+    // time-lapse of the death rates over the selected dates
+    private Timeline timeLapse;
+    private Button playButton;
+    private Slider timeSlider; // day of the time-lapse shown, counted from fromDate
+    private ComboBox<String> windowComboBox; // how many days each frame adds up
+    private Label frameDateLabel;
+    private TimeLapseFrames frames; // frames of the selected dates and window (null until they have been built)
+    private Polygon[] framePolygons; // each polygon in the frames
+    private long[] frameDeaths; // deaths of each polygon in the current frame, reused by every frame
+    private final LatestOnlyExecutor frameUpdates = new LatestOnlyExecutor("covid-map-frames"); // rebuilds the frames off the FX thread when the window changes
  
-    public MapPanel() {
+    static {
+        for (int level = 0; level < COLOUR_LEVELS.length; level++) {
+            COLOUR_LEVELS[level] = determineColor(level, 0, COLOUR_LEVELS.length - 1);
+        }
+    }
+ 
+    public MapPanel(CovidDataRepository repository) {
+        this.repository = repository;
+        
         // initialise borough polygons and death rates
         boroughPolygons = new HashMap<>();
         boroughDeathRates = new HashMap<>();
@@ -80,12 +106,20 @@ public class MapPanel extends Pane {
         addBorough("CROY", new double[]{320, 506, 358, 483, 358, 441, 320, 420, 282, 441, 282, 483});
         addBorough("BROM", new double[]{400, 506, 438, 483, 438, 441, 400, 420, 362, 441, 362, 483});
         
-        // sets up map with the attached png
-        mapImageView = new ImageView(new Image(getClass().getResourceAsStream("/boroughs.png")));
+        // sets up the view for the map png, which is only decoded when the panel is first shown
+        mapImageView = new ImageView();
         mapImageView.setPreserveRatio(true); // maintains the png size ratio
-        mapImageView.setFitWidth(600); // sets width of map image
+        mapImageView.setFitWidth(MAP_WIDTH); // sets width of map image
         this.getChildren().add(mapImageView); // adds image to panel
         mapImageView.toBack(); // ensures png is behind the created polygons
+        visibleProperty().addListener((observable, wasVisible, isVisible) -> {
+            if (isVisible) {
+                loadMapImage();
+            }
+        });
+        if (isVisible()) {
+            loadMapImage();
+        }
         
         updateDeathRates(); // colour code boroughs
         
@@ -97,6 +131,160 @@ public class MapPanel extends Pane {
         
         // key button shows colour key
         keyButton.setOnAction(e -> showKeyBox());
+        
+        initialiseTimeLapse();
+    }
+    
+    // sets up the play button, the day slider and the window choice under the map
+    private void initialiseTimeLapse() {
+        timeLapse = new Timeline(new KeyFrame(Duration.millis(1000.0 / FRAMES_PER_SECOND), e -> nextFrame()));
+        timeLapse.setCycleCount(Animation.INDEFINITE);
+        
+        playButton = new Button("Play");
+        playButton.setOnAction(e -> togglePlayback());
+        
+        timeSlider = new Slider(0, 0, 0);
+        timeSlider.setPrefWidth(300);
+        timeSlider.valueProperty().addListener((observable, oldDay, newDay) -> {
+            if (oldDay.intValue() != newDay.intValue()) {
+                showFrame(newDay.intValue());
+            }
+        });
+        timeSlider.setOnMousePressed(e -> showFrame((int) timeSlider.getValue())); // scrubbing shows the frame even if the day did not change
+        
+        windowComboBox = new ComboBox<>();
+        windowComboBox.getItems().addAll("1 day", "7 days", "14 days", "28 days");
+        windowComboBox.getSelectionModel().select("7 days"); // a week smooths out the days when deaths were not reported
+        windowComboBox.setOnAction(e -> updateFrames()); // the colour scale depends on the window
+        
+        frameDateLabel = new Label();
+        
+        HBox controls = new HBox(10, playButton, timeSlider, windowComboBox, frameDateLabel);
+        controls.setAlignment(Pos.CENTER_LEFT);
+        controls.setLayoutX(10);
+        controls.setLayoutY(520); // under the map
+        this.getChildren().add(controls);
+    }
+    
+    // plays the time-lapse from the slider's day, or pauses it
+    private void togglePlayback() {
+        if (timeLapse.getStatus() == Animation.Status.RUNNING) {
+            timeLapse.pause();
+            playButton.setText("Play");
+            return;
+        }
+        if (fromDate == null || toDate == null || repository.getDataset() == null) {
+            return; // no dates to play through yet
+        }
+        if (timeSlider.getValue() >= timeSlider.getMax()) {
+            timeSlider.setValue(0); // starts again from the first day
+        }
+        showFrame((int) timeSlider.getValue());
+        timeLapse.play();
+        playButton.setText("Pause");
+    }
+    
+    // moves the time-lapse on by one day, stopping on the last day
+    private void nextFrame() {
+        if (timeSlider.getValue() >= timeSlider.getMax()) {
+            stopTimeLapse();
+            return;
+        }
+        timeSlider.setValue(timeSlider.getValue() + 1); // the slider's listener draws the frame
+    }
+    
+    private void stopTimeLapse() {
+        timeLapse.stop();
+        playButton.setText("Play");
+    }
+    
+    // colours the boroughs with the deaths in the window of days ending on the given day of the range
+    private void showFrame(int day) {
+        if (frames == null) {
+            return; // still being built, the frame is shown once they arrive
+        }
+        long lastDay = fromDate.toEpochDay() + day;
+        frameDateLabel.setText(DateLabels.display((int) lastDay));
+        
+        // only the borough fills change, and every colour comes from the precomputed shades
+        frames.deaths(lastDay, frameDeaths);
+        for (int i = 0; i < framePolygons.length; i++) {
+            if (framePolygons[i] != null) {
+                framePolygons[i].setFill(colourLevel(frameDeaths[i], frames.getMin(), frames.getMax()));
+            }
+        }
+    }
+    
+    /**
+     * Shows the time-lapse frames built for the selected dates. Frames built for other
+     * dates or another window are dropped and rebuilt for the current ones.
+     * @param frames the frames, built off the FX thread
+     */
+    public void setFrames(TimeLapseFrames frames) {
+        CovidDataset dataset = repository.getDataset();
+        if (fromDate == null || toDate == null || dataset == null) {
+            return;
+        }
+        if (!frames.matches(dataset, fromDate, toDate, getWindowDays())) {
+            updateFrames(); // the selection changed while they were being built
+            return;
+        }
+        this.frames = frames;
+        framePolygons = new Polygon[frames.size()];
+        frameDeaths = new long[frames.size()];
+        for (int i = 0; i < framePolygons.length; i++) {
+            framePolygons[i] = boroughPolygons.get(frames.getPolygonKey(i));
+        }
+        showFrame((int) timeSlider.getValue());
+    }
+    
+    // rebuilds the frames for the selected dates and window in the background
+    private void updateFrames() {
+        CovidDataset dataset = repository.getDataset();
+        if (fromDate == null || toDate == null || dataset == null || fromDate.isAfter(toDate)) {
+            return;
+        }
+        frames = null;
+        LocalDate from = fromDate;
+        LocalDate to = toDate;
+        int windowDays = getWindowDays();
+        frameUpdates.submit(() -> TimeLapseFrames.of(dataset, from, to, windowDays), this::setFrames, e -> {
+            e.printStackTrace();
+            frameDateLabel.setText("Time-lapse unavailable");
+        });
+    }
+    
+    /**
+     * @return how many days, up to and including its own, each time-lapse frame adds up
+     */
+    public int getWindowDays() {
+        String window = windowComboBox.getValue();
+        return Integer.parseInt(window.substring(0, window.indexOf(' ')));
+    }
+    
+    // called when the selected dates change: stops the time-lapse and fits the slider to the new range
+    private void resetTimeLapse() {
+        if (timeLapse == null) {
+            return;
+        }
+        stopTimeLapse();
+        frames = null; // the new frames come with the totals of the new dates
+        frameDateLabel.setText("");
+        if (fromDate != null && toDate != null && !fromDate.isAfter(toDate)) {
+            timeSlider.setMax(toDate.toEpochDay() - fromDate.toEpochDay());
+        }
+        timeSlider.setValue(0);
+    }
+
+    // decodes the map png the first time the panel is shown, straight to the size it is shown at
+    private void loadMapImage() {
+        if (mapImageView.getImage() != null) {
+            return; // already loaded
+        }
+        // the png is thousands of pixels wide, so decoding it at 600 pixels (smoothed, in the background)
+        // uses a fraction of the memory and time of decoding it in full and scaling it down
+        String url = getClass().getResource("/boroughs.png").toExternalForm();
+        mapImageView.setImage(new Image(url, MAP_WIDTH, 0, true, true, true));
     }
 
     private void addBorough(String name, double[] coordinates) {
@@ -126,17 +314,17 @@ public class MapPanel extends Pane {
         }
         
         // determine minimum and maximum death rates for the data range
-        int minDeaths = Collections.min(boroughDeathRates.values());
-        int maxDeaths = Collections.max(boroughDeathRates.values());
+        long minDeaths = Collections.min(boroughDeathRates.values());
+        long maxDeaths = Collections.max(boroughDeathRates.values());
         
         // colours each polygon depending on the death rate
-        for (Map.Entry<String, Integer> entry : boroughDeathRates.entrySet()) {
+        for (Map.Entry<String, Long> entry : boroughDeathRates.entrySet()) {
             String borough = entry.getKey();
-            int deaths = entry.getValue();
+            long deaths = entry.getValue();
             Polygon polygon = boroughPolygons.get(borough);
 
             if (polygon != null) {
-                Color color = determineColor(deaths, minDeaths, maxDeaths);
+                Color color = colourLevel(deaths, minDeaths, maxDeaths);
                 polygon.setFill(color);
             }
             else {
@@ -145,7 +333,16 @@ public class MapPanel extends Pane {
         }
     }
 
-    private Color determineColor(int deaths, int minDeaths, int maxDeaths) {
+    // picks the precomputed shade nearest to a death rate, so colouring never creates new colours
+    private static Color colourLevel(long deaths, long minDeaths, long maxDeaths) {
+        if (maxDeaths <= minDeaths) {
+            return COLOUR_LEVELS[0]; // every borough has the same rate
+        }
+        int level = (int) ((deaths - minDeaths) * (COLOUR_LEVELS.length - 1) / (maxDeaths - minDeaths));
+        return COLOUR_LEVELS[level];
+    }
+
+    private static Color determineColor(int deaths, int minDeaths, int maxDeaths) {
         
         // calculates the colour for the minimum and maximum death rates
         Color lowDeathRateColor = Color.LIGHTBLUE;
@@ -163,17 +360,21 @@ public class MapPanel extends Pane {
         return new Color(red, green, blue, 0.5); 
     }
 
-    public void setDeathRates(HashMap<String, Integer> deathRates) {
+    public void setDeathRates(HashMap<String, Long> deathRates) {
         this.boroughDeathRates = deathRates;
         updateDeathRates();
     }
 
     public void setFromDate(LocalDate fromDate) {
         this.fromDate = fromDate;
+        detailIndexes.clear(); // the borough slices depend on the dates
+        resetTimeLapse();
     }
     
      public void setToDate(LocalDate toDate) {
         this.toDate = toDate;
+        detailIndexes.clear();
+        resetTimeLapse();
     }
     
     public void showBoroughDetails(String boroughIdentifier){
@@ -194,25 +395,30 @@ public class MapPanel extends Pane {
         TableView<CovidData> tableView = new TableView<>(); // create the table by using TabelView
         setupTableView(tableView); 
         
-        List<CovidData> boroughData = fetchDataForBorough(boroughIdentifier, fromDate, toDate); // retrieve a list of CovidData for a specific borough
-        ObservableList<CovidData> dataObservableList = FXCollections.observableArrayList(boroughData); // covenrt list to an ObservableList that can be used in TableView
-        
-        
-        
+        // the borough's rows with their sorted orders, so re-sorting just switches to another order
+        SortedRowList boroughRows = new SortedRowList(fetchRowIndexForBorough(boroughIdentifier));
         
         VBox.setVgrow(tableView, Priority.ALWAYS); // make TableView expand to fill the Vbox vertically
         
         // lamda expression to sets the action when an options is selected from the comboBox
         sortOptions.setOnAction(event -> {
-            String selectedOption = sortOptions.getValue();
-            Comparator<CovidData> comparator = getComparator(selectedOption);// gets the appropriate comparator based on the selected sort option
-            if (comparator != null) {
-                FXCollections.sort(dataObservableList, comparator);
+            tableView.getSortOrder().clear(); // the chosen option replaces any column sort
+            boroughRows.sortBy(getSortMetric(sortOptions.getValue()), false);
+        });
+        
+        // clicking a column header also switches to that column's precomputed order
+        tableView.setSortPolicy(table -> {
+            if (table.getSortOrder().isEmpty()) {
+                boroughRows.sortBy(null, false); // no column sort left, so back to date order
+            } else {
+                TableColumn<CovidData, ?> column = table.getSortOrder().get(0);
+                boroughRows.sortBy(getSortMetric(column.getText()), column.getSortType() == TableColumn.SortType.DESCENDING);
             }
+            return true;
         });
         
         // Set the TableView to sort the first column in descending order by default
-        tableView.setItems(dataObservableList);
+        tableView.setItems(boroughRows);
         tableView.getColumns().get(0).setSortType(TableColumn.SortType.DESCENDING); 
         tableView.getSortOrder().add(tableView.getColumns().get(0));
         
@@ -225,59 +431,43 @@ public class MapPanel extends Pane {
         detailStage.show();
     }
     
-    private List<CovidData> fetchDataForBorough(String boroughIdentifier, LocalDate fromDate, LocalDate toDate) {
-        CovidDataLoader dataLoader = new CovidDataLoader();
-        List<CovidData> allData = dataLoader.load(); // load all data
-        
-                
-        // Filter the data based on the borough identifier and the date range
-        List<CovidData> filteredData = allData.stream()
-            .filter(data -> data.getBorough().equals(boroughIdentifier)) // match borough
-            .filter(data -> {
-                try {
-                    LocalDate dataDate = LocalDate.parse(data.getDate());
-                    // handle null dates
-                    boolean isAfterStart = (fromDate == null) || !dataDate.isBefore(fromDate);
-                    boolean isBeforeEnd = (toDate == null) || !dataDate.isAfter(toDate);
-                    return isAfterStart && isBeforeEnd;
-                } catch (DateTimeParseException e) {
-                    // if there is an error parsing the date, print the error
-                    System.err.println("Error parsing date: " + data.getDate());
-                    return false; // exclude this record if the date is invalid
-                }
-            })
-            .collect(Collectors.toList()); // collect the results from the stream back into a list
-        
-        return filteredData;
+    private BoroughRowIndex fetchRowIndexForBorough(String boroughIdentifier) {
+        // look up the borough in the already loaded dataset rather than re-reading the csv,
+        // keeping its index so opening the borough again reuses the orders already sorted
+        CovidDataset dataset = repository.getDataset();
+        if (dataset != detailDataset) {
+            detailIndexes.clear();
+            detailDataset = dataset;
+        }
+        return detailIndexes.computeIfAbsent(boroughIdentifier,
+            borough -> new BoroughRowIndex(dataset.rowsOfBorough(borough, fromDate, toDate)));
     }
     
     /**
-     * This method returns a comparator for CovidData based on specific sorting option
+     * This method returns the metric to sort by for a sorting option or column (null means by date)
      */
-    private Comparator<CovidData> getComparator(String option) {
+    private CovidMetric getSortMetric(String option) {
         switch (option) {
-            case "Date":
-                return Comparator.comparing(CovidData::getDate);
             case "New COVID Cases":
-                return Comparator.comparing(CovidData::getNewCases);
+                return CovidMetric.NEW_CASES;
             case "Total COVID Cases":
-                return Comparator.comparing(CovidData::getTotalCases);
+                return CovidMetric.TOTAL_CASES;
             case "New COVID Deaths":
-                return Comparator.comparing(CovidData::getNewDeaths);
+                return CovidMetric.NEW_DEATHS;
             case "Retail and Recreation GMR":
-                return Comparator.comparing(CovidData::getRetailRecreationGMR);
+                return CovidMetric.RETAIL_RECREATION_GMR;
             case "Grocery and Pharmacy GMR":
-                return Comparator.comparing(CovidData::getGroceryPharmacyGMR);
+                return CovidMetric.GROCERY_PHARMACY_GMR;
             case "Parks GMR":
-                return Comparator.comparing(CovidData::getParksGMR);
+                return CovidMetric.PARKS_GMR;
             case "Transit Stations GMR":
-                return Comparator.comparing(CovidData::getTransitGMR); 
+                return CovidMetric.TRANSIT_GMR; 
             case "Workplaces GMR":
-                return Comparator.comparing(CovidData::getWorkplacesGMR);
+                return CovidMetric.WORKPLACES_GMR;
             case "Residential GMR":
-                return Comparator.comparing(CovidData::getResidentialGMR);    
+                return CovidMetric.RESIDENTIAL_GMR;    
             default:
-                return null;
+                return null; // "Date"
         }
     }
     
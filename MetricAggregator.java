@@ -0,0 +1,306 @@
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Running statistics of every metric over a set of rows, gathered in one pass:
+ * count, sum, minimum, maximum, mean and variance. The mean and variance use
+ * Welford's method, which stays accurate where summing squares would not.
+ * Aggregates of separate parts of the data can be merged, so large ranges are
+ * split into chunks, aggregated in parallel and combined.
+ */
+public final class MetricAggregator {
+
+    private static final int PARALLEL_ROWS = 1 << 16; // ranges at least this long are aggregated in parallel chunks
+
+    private long count; // number of rows added; every row has a value for every metric
+    private final long[] sums = new long[CovidMetric.count()];
+    private final int[] mins = new int[CovidMetric.count()];
+    private final int[] maxs = new int[CovidMetric.count()];
+    private final double[] means = new double[CovidMetric.count()];
+    private final double[] m2s = new double[CovidMetric.count()]; // sum of squared differences from the mean
+
+    /**
+     * Creates an empty aggregate.
+     */
+    public MetricAggregator() {
+        Arrays.fill(mins, Integer.MAX_VALUE);
+        Arrays.fill(maxs, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Aggregates a list of rows.
+     * @param rows the rows to aggregate
+     * @return the statistics of the rows
+     */
+    public static MetricAggregator of(List<CovidData> rows) {
+        MetricAggregator aggregator = new MetricAggregator();
+        for (CovidData row : rows) {
+            aggregator.add(row);
+        }
+        return aggregator;
+    }
+
+    /**
+     * Aggregates a slice of rows straight from the table's columns, without turning
+     * them into CovidData objects.
+     * @param slice the rows to aggregate
+     * @return the statistics of the rows
+     */
+    public static MetricAggregator of(RowSlice slice) {
+        if (slice.isContiguous()) {
+            int first = slice.size() == 0 ? 0 : slice.rowAt(0);
+            return of(slice.getTable(), first, first + slice.size());
+        }
+        MetricAggregator aggregator = new MetricAggregator();
+        aggregator.addRows(slice);
+        return aggregator;
+    }
+
+    /**
+     * Aggregates a block of rows straight from the table's columns. Long blocks are
+     * split into chunks that are aggregated in parallel and then merged.
+     * @param table the table to read
+     * @param fromRow the first row (inclusive)
+     * @param toRow the last row (exclusive)
+     * @return the statistics of the rows
+     */
+    public static MetricAggregator of(CovidTable table, int fromRow, int toRow) {
+        int rows = toRow - fromRow;
+        if (rows < PARALLEL_ROWS) {
+            MetricAggregator aggregator = new MetricAggregator();
+            aggregator.addRows(table, fromRow, toRow);
+            return aggregator;
+        }
+        int chunks = (rows + PARALLEL_ROWS - 1) / PARALLEL_ROWS;
+        return IntStream.range(0, chunks).parallel()
+            .mapToObj(chunk -> {
+                MetricAggregator part = new MetricAggregator();
+                int start = fromRow + chunk * PARALLEL_ROWS;
+                part.addRows(table, start, Math.min(toRow, start + PARALLEL_ROWS));
+                return part;
+            })
+            .reduce(MetricAggregator::merge) // merge folds into its left side, which is always a fresh part
+            .orElseGet(MetricAggregator::new);
+    }
+
+    /**
+     * Builds an aggregate from exact integer totals, such as those RangeSums keeps.
+     * The squares are of each value less a shift (any value near the mean keeps them
+     * small), and the spread is worked out as count * sumSquares - shiftedSum^2 in
+     * exact 128-bit arithmetic before anything is rounded, so unlike the textbook
+     * sumSquares - mean * sum it does not lose precision to cancellation.
+     * @param count the number of rows
+     * @param sums the sum of each metric, indexed by CovidMetric ordinal
+     * @param shifts the value taken off each metric before squaring
+     * @param sumSquares the sum of the squared shifted values of each metric, or -1 where
+     * it is not known (that metric's variance is then NaN)
+     * @param mins the smallest value of each metric
+     * @param maxs the largest value of each metric
+     * @return the statistics of the rows
+     */
+    public static MetricAggregator fromMoments(long count, long[] sums, long[] shifts, long[] sumSquares, int[] mins, int[] maxs) {
+        MetricAggregator aggregator = new MetricAggregator();
+        if (count == 0) {
+            return aggregator;
+        }
+        aggregator.count = count;
+        for (int m = 0; m < sums.length; m++) {
+            double mean = (double) sums[m] / count;
+            aggregator.sums[m] = sums[m];
+            aggregator.mins[m] = mins[m];
+            aggregator.maxs[m] = maxs[m];
+            aggregator.means[m] = mean;
+            aggregator.m2s[m] = sumSquares[m] < 0 ? Double.NaN : exactSpread(count, sumSquares[m], sums[m] - count * shifts[m]) / count;
+        }
+        return aggregator;
+    }
+
+    // count * sumSquares - sum * sum, subtracted exactly as 128-bit integers and only then made a double
+    private static double exactSpread(long count, long sumSquares, long sum) {
+        long low1 = count * sumSquares;
+        long high1 = Math.multiplyHigh(count, sumSquares);
+        long low2 = sum * sum;
+        long high2 = Math.multiplyHigh(sum, sum);
+        long low = low1 - low2;
+        long high = high1 - high2 - (Long.compareUnsigned(low1, low2) < 0 ? 1 : 0);
+        double unsignedLow = (double) (low >>> 1) * 2.0 + (low & 1);
+        return Math.max(0.0, high * 0x1p64 + unsignedLow);
+    }
+
+    /**
+     * Adds one row.
+     * @param row the row to add
+     */
+    public void add(CovidData row) {
+        count++;
+        for (int m = 0; m < sums.length; m++) {
+            update(m, CovidMetric.fromOrdinal(m).valueOf(row));
+        }
+    }
+
+    /**
+     * Adds a block of rows, sweeping each metric column in turn.
+     * @param table the table to read
+     * @param fromRow the first row (inclusive)
+     * @param toRow the last row (exclusive)
+     */
+    public void addRows(CovidTable table, int fromRow, int toRow) {
+        if (fromRow >= toRow) {
+            return;
+        }
+        // aggregate the block on its own, then fold it in with the same formula as merge
+        MetricAggregator block = new MetricAggregator();
+        block.count = toRow - fromRow;
+        for (int m = 0; m < sums.length; m++) {
+            int[] column = table.getColumn(CovidMetric.fromOrdinal(m));
+            long sum = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            double mean = 0;
+            double m2 = 0;
+            for (int row = fromRow; row < toRow; row++) {
+                int value = column[row];
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                double delta = value - mean;
+                mean += delta / (row - fromRow + 1);
+                m2 += delta * (value - mean);
+            }
+            block.sums[m] = sum;
+            block.mins[m] = min;
+            block.maxs[m] = max;
+            block.means[m] = mean;
+            block.m2s[m] = m2;
+        }
+        merge(block);
+    }
+
+    /**
+     * Adds the rows of a slice that need not be consecutive, sweeping each metric column in turn.
+     * @param slice the rows to add
+     */
+    public void addRows(RowSlice slice) {
+        int size = slice.size();
+        if (size == 0) {
+            return;
+        }
+        int[] rows = new int[size]; // looked up once, then reused for every column
+        for (int i = 0; i < size; i++) {
+            rows[i] = slice.rowAt(i);
+        }
+        MetricAggregator block = new MetricAggregator();
+        block.count = size;
+        for (int m = 0; m < sums.length; m++) {
+            int[] column = slice.getTable().getColumn(CovidMetric.fromOrdinal(m));
+            long sum = 0;
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            double mean = 0;
+            double m2 = 0;
+            for (int i = 0; i < size; i++) {
+                int value = column[rows[i]];
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                double delta = value - mean;
+                mean += delta / (i + 1);
+                m2 += delta * (value - mean);
+            }
+            block.sums[m] = sum;
+            block.mins[m] = min;
+            block.maxs[m] = max;
+            block.means[m] = mean;
+            block.m2s[m] = m2;
+        }
+        merge(block);
+    }
+
+    // one Welford step for one metric; count has already been increased
+    private void update(int m, int value) {
+        sums[m] += value;
+        mins[m] = Math.min(mins[m], value);
+        maxs[m] = Math.max(maxs[m], value);
+        double delta = value - means[m];
+        means[m] += delta / count;
+        m2s[m] += delta * (value - means[m]);
+    }
+
+    /**
+     * Folds the statistics of another, separately gathered part of the data into this one.
+     * @param other the aggregate to add (left unchanged)
+     * @return this aggregate
+     */
+    public MetricAggregator merge(MetricAggregator other) {
+        if (other.count == 0) {
+            return this;
+        }
+        long total = count + other.count;
+        for (int m = 0; m < sums.length; m++) {
+            double delta = other.means[m] - means[m];
+            means[m] += delta * other.count / total;
+            m2s[m] += other.m2s[m] + delta * delta * ((double) count * other.count / total);
+            sums[m] += other.sums[m];
+            mins[m] = Math.min(mins[m], other.mins[m]);
+            maxs[m] = Math.max(maxs[m], other.maxs[m]);
+        }
+        count = total;
+        return this;
+    }
+
+    /**
+     * @return the number of rows aggregated
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param metric the metric to read
+     * @return the sum of the metric
+     */
+    public long getSum(CovidMetric metric) {
+        return sums[metric.ordinal()];
+    }
+
+    /**
+     * @param metric the metric to read
+     * @return the smallest value of the metric, or 0 if there are no rows
+     */
+    public int getMin(CovidMetric metric) {
+        return count == 0 ? 0 : mins[metric.ordinal()];
+    }
+
+    /**
+     * @param metric the metric to read
+     * @return the largest value of the metric, or 0 if there are no rows
+     */
+    public int getMax(CovidMetric metric) {
+        return count == 0 ? 0 : maxs[metric.ordinal()];
+    }
+
+    /**
+     * @param metric the metric to read
+     * @return the mean of the metric, or 0 if there are no rows
+     */
+    public double getMean(CovidMetric metric) {
+        return means[metric.ordinal()];
+    }
+
+    /**
+     * @param metric the metric to read
+     * @return the population variance of the metric, or 0 if there are no rows
+     */
+    public double getVariance(CovidMetric metric) {
+        return count == 0 ? 0.0 : m2s[metric.ordinal()] / count;
+    }
+
+    /**
+     * @param metric the metric to read
+     * @return the population standard deviation of the metric, or 0 if there are no rows
+     */
+    public double getStandardDeviation(CovidMetric metric) {
+        return Math.sqrt(getVariance(metric));
+    }
+}
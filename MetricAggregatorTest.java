@@ -0,0 +1,78 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// unit test to check that the single-pass statistics match straightforward calculations
+class MetricAggregatorTest {
+
+    // creates test to ensure the one-pass mean, variance, min and max are correct
+    @Test
+    public void matchesTwoPassStatistics() {
+        List<CovidData> rows = randomRows(500, 1);
+        MetricAggregator aggregate = MetricAggregator.of(rows);
+        
+        for (CovidMetric metric : CovidMetric.values()) {
+            double mean = rows.stream().mapToInt(metric::valueOf).average().orElse(0);
+            double variance = rows.stream().mapToDouble(row -> Math.pow(metric.valueOf(row) - mean, 2)).sum() / rows.size();
+            assertEquals(rows.stream().mapToLong(metric::valueOf).sum(), aggregate.getSum(metric), metric + " sum is incorrect");
+            assertEquals(rows.stream().mapToInt(metric::valueOf).min().getAsInt(), aggregate.getMin(metric), metric + " min is incorrect");
+            assertEquals(rows.stream().mapToInt(metric::valueOf).max().getAsInt(), aggregate.getMax(metric), metric + " max is incorrect");
+            assertEquals(mean, aggregate.getMean(metric), 1e-9, metric + " mean is incorrect");
+            assertEquals(variance, aggregate.getVariance(metric), 1e-6, metric + " variance is incorrect");
+        }
+    }
+    
+    // creates test to ensure merging partial aggregates (in any grouping) gives the same result as one pass
+    @Test
+    public void mergedPartsMatchSinglePass() {
+        List<CovidData> rows = randomRows(1000, 2);
+        CovidTable table = CovidTable.fromRecords(rows);
+        MetricAggregator single = MetricAggregator.of(table.rows());
+        MetricAggregator merged = MetricAggregator.of(table, 0, 300).merge(MetricAggregator.of(table, 300, 1000));
+        MetricAggregator grouped = MetricAggregator.of(table, 0, 100).merge(MetricAggregator.of(table, 100, 600).merge(MetricAggregator.of(table, 600, 1000)));
+        
+        for (MetricAggregator other : List.of(merged, grouped)) {
+            assertEquals(single.getCount(), other.getCount(), "Count is incorrect");
+            for (CovidMetric metric : CovidMetric.values()) {
+                assertEquals(single.getSum(metric), other.getSum(metric), metric + " sum is incorrect");
+                assertEquals(single.getMax(metric), other.getMax(metric), metric + " max is incorrect");
+                assertEquals(single.getMean(metric), other.getMean(metric), 1e-9, metric + " mean is incorrect");
+                assertEquals(single.getVariance(metric), other.getVariance(metric), 1e-6, metric + " variance is incorrect");
+            }
+        }
+    }
+
+    // creates test to ensure aggregating date and borough slices matches aggregating the same rows as a list
+    @Test
+    public void slicesMatchRowLists() {
+        CovidDataset dataset = new CovidDataset(randomRows(1000, 3));
+        RowSlice dates = dataset.getTable().sliceBetween(18020, 18060);
+        RowSlice borough = dataset.rowsOfBorough("Borough 7", null, null).slice(5, 80);
+
+        for (RowSlice slice : List.of(dates, borough)) {
+            MetricAggregator expected = MetricAggregator.of(new ArrayList<>(slice.asList()));
+            MetricAggregator actual = MetricAggregator.of(slice);
+            assertEquals(expected.getCount(), actual.getCount(), "Count is incorrect");
+            for (CovidMetric metric : CovidMetric.values()) {
+                assertEquals(expected.getSum(metric), actual.getSum(metric), metric + " sum is incorrect");
+                assertEquals(expected.getMin(metric), actual.getMin(metric), metric + " min is incorrect");
+                assertEquals(expected.getMean(metric), actual.getMean(metric), 1e-9, metric + " mean is incorrect");
+                assertEquals(expected.getVariance(metric), actual.getVariance(metric), 1e-6, metric + " variance is incorrect");
+            }
+        }
+        assertEquals(75, borough.size(), "Slice size is incorrect");
+    }
+
+    private static List<CovidData> randomRows(int count, long seed) {
+        Random random = new Random(seed);
+        List<CovidData> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new CovidData(18000 + i / 10, "Borough " + i % 10, random.nextInt(200) - 100, random.nextInt(200) - 100,
+                random.nextInt(200) - 100, random.nextInt(200) - 100, random.nextInt(200) - 100, random.nextInt(50),
+                random.nextInt(500), random.nextInt(100000), random.nextInt(10), random.nextInt(1000)));
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,346 @@
+import java.util.Arrays;
+
+/**
+ * Per-borough cumulative sums over the days of a table, built once at load.
+ * They give the total (and row count) of a metric over any date range with two
+ * array reads, whatever the length of the range, and a single day is just the
+ * range of that one day, so the graphs read their daily series from here too.
+ *
+ * Only the metrics that make sense to add up (the mobility figures and the new
+ * cases and deaths) are kept per borough, in ints when every sum fits. The running
+ * totals are only summed over London as a whole, which takes one array per metric;
+ * one borough's running totals are read from its own rows when asked for.
+ *
+ * For the statistics of London as a whole, cumulative sums of squares give the
+ * variance (squares of the distance from each metric's overall mean, so they stay
+ * small enough to add up exactly), and sparse tables of the daily minimums and maximums give the extremes
+ * of any range with two lookups, so every statistic of a range is found without
+ * reading its rows.
+ */
+public final class RangeSums {
+
+    private final CovidTable table; // the rows, for the running totals of a single borough
+    private final int firstDay; // epoch day of the first day in the table
+    private final int dayCount; // number of days from the first to the last date
+    private final int boroughCount; // number of real boroughs (allBoroughs() comes after them)
+    private final int[][] intPrefix; // [metric][borough * (dayCount + 1) + d] = sum of the first d days, null unless the metric fits in ints
+    private final long[][] longPrefix; // same layout, for the summed metrics that need longs
+    private final int[] countPrefix; // cumulative row counts per borough, same layout
+    private final long[][] londonPrefix; // [metric][d] = London-wide sum of the first d days, for every metric
+    private final int[] londonCounts; // [d] = London-wide number of rows in the first d days
+    private final long[] shifts; // [metric] = the metric's overall mean, rounded, which the squares are taken around
+    private final long[][] squarePrefix; // [metric][d] = sum of the squared shifted London values of the first d days, null if too large for a long
+    private final int[][][] minTable; // [metric][level][d] = London minimum over the 2^level days from day d
+    private final int[][][] maxTable; // [metric][level][d] = London maximum over the 2^level days from day d
+
+    private RangeSums(CovidTable table, int firstDay, int dayCount, int[][] intPrefix, long[][] longPrefix, int[] countPrefix,
+                      long[][] londonPrefix, int[] londonCounts, long[] shifts, long[][] squarePrefix, int[][][] minTable, int[][][] maxTable) {
+        this.table = table;
+        this.firstDay = firstDay;
+        this.dayCount = dayCount;
+        this.boroughCount = table.getBoroughCount();
+        this.intPrefix = intPrefix;
+        this.longPrefix = longPrefix;
+        this.countPrefix = countPrefix;
+        this.londonPrefix = londonPrefix;
+        this.londonCounts = londonCounts;
+        this.shifts = shifts;
+        this.squarePrefix = squarePrefix;
+        this.minTable = minTable;
+        this.maxTable = maxTable;
+    }
+
+    /**
+     * Builds the per-borough cumulative sums, and the London-wide sums, squares
+     * and extremes, from the table's rows.
+     * @param table the rows to accumulate
+     * @return the cumulative sums
+     */
+    public static RangeSums of(CovidTable table) {
+        // the table is sorted by date, so the first and last rows give the covered days
+        int firstDay = table.size() == 0 ? 0 : table.getEpochDay(0);
+        int dayCount = table.size() == 0 ? 0 : table.getEpochDay(table.size() - 1) - firstDay + 1;
+        int stride = dayCount + 1;
+        int metrics = CovidMetric.count();
+        int[] epochDays = table.getEpochDayColumn();
+
+        int[] countPrefix = new int[table.getBoroughCount() * stride];
+        int[] londonCounts = new int[stride];
+        for (int row = 0; row < table.size(); row++) {
+            int day = epochDays[row] - firstDay;
+            countPrefix[table.getBorough(row) * stride + day + 1]++;
+            londonCounts[day + 1]++;
+        }
+        accumulate(countPrefix, stride);
+        accumulate(londonCounts, stride);
+
+        int[][] intPrefix = new int[metrics][];
+        long[][] longPrefix = new long[metrics][];
+        long[][] londonPrefix = new long[metrics][];
+        long[] shifts = new long[metrics];
+        long[][] squarePrefix = new long[metrics][];
+        int[][][] minTable = new int[metrics][][];
+        int[][][] maxTable = new int[metrics][][];
+        long rows = Math.max(1, table.size());
+        for (int m = 0; m < metrics; m++) {
+            CovidMetric metric = CovidMetric.fromOrdinal(m);
+            int[] column = table.getColumn(metric);
+            if (!metric.isCumulative()) {
+                try {
+                    intPrefix[m] = boroughPrefix(table, column, firstDay, stride);
+                } catch (ArithmeticException e) {
+                    // some sum of this metric is too large for an int
+                    longPrefix[m] = boroughPrefixLong(table, column, firstDay, stride);
+                }
+            }
+
+            // one pass over the rows for the daily sums, squares and extremes of London
+            long[] sums = new long[stride];
+            for (int row = 0; row < table.size(); row++) {
+                sums[epochDays[row] - firstDay + 1] += column[row];
+            }
+            for (int d = 0; d < dayCount; d++) {
+                sums[d + 1] += sums[d];
+            }
+            londonPrefix[m] = sums;
+            long shift = Math.round((double) sums[dayCount] / rows);
+            shifts[m] = shift;
+            long[] squares = new long[stride];
+            int[] dayMins = new int[dayCount];
+            int[] dayMaxs = new int[dayCount];
+            Arrays.fill(dayMins, Integer.MAX_VALUE);
+            Arrays.fill(dayMaxs, Integer.MIN_VALUE);
+            try {
+                for (int row = 0; row < table.size(); row++) {
+                    int day = epochDays[row] - firstDay;
+                    int value = column[row];
+                    long shifted = value - shift;
+                    squares[day + 1] = Math.addExact(squares[day + 1], Math.multiplyExact(shifted, shifted));
+                    dayMins[day] = Math.min(dayMins[day], value);
+                    dayMaxs[day] = Math.max(dayMaxs[day], value);
+                }
+                for (int d = 0; d < dayCount; d++) {
+                    squares[d + 1] = Math.addExact(squares[d + 1], squares[d]);
+                }
+                squarePrefix[m] = squares;
+            } catch (ArithmeticException e) {
+                // the squares of this metric do not fit in a long, so its variance is not offered;
+                // the extremes still need the rest of the pass
+                for (int row = 0; row < table.size(); row++) {
+                    int day = epochDays[row] - firstDay;
+                    dayMins[day] = Math.min(dayMins[day], column[row]);
+                    dayMaxs[day] = Math.max(dayMaxs[day], column[row]);
+                }
+            }
+            minTable[m] = sparseTable(dayMins, true);
+            maxTable[m] = sparseTable(dayMaxs, false);
+        }
+        return new RangeSums(table, firstDay, dayCount, intPrefix, longPrefix, countPrefix,
+            londonPrefix, londonCounts, shifts, squarePrefix, minTable, maxTable);
+    }
+
+    // the per-borough cumulative sums of one column in ints
+    // @throws ArithmeticException if any of them does not fit
+    private static int[] boroughPrefix(CovidTable table, int[] column, int firstDay, int stride) {
+        int[] prefix = new int[table.getBoroughCount() * stride];
+        int[] epochDays = table.getEpochDayColumn();
+        for (int row = 0; row < table.size(); row++) {
+            int cell = table.getBorough(row) * stride + epochDays[row] - firstDay + 1;
+            prefix[cell] = Math.addExact(prefix[cell], column[row]);
+        }
+        for (int base = 0; base < prefix.length; base += stride) {
+            for (int d = 1; d < stride; d++) {
+                prefix[base + d] = Math.addExact(prefix[base + d], prefix[base + d - 1]);
+            }
+        }
+        return prefix;
+    }
+
+    // the per-borough cumulative sums of one column in longs
+    private static long[] boroughPrefixLong(CovidTable table, int[] column, int firstDay, int stride) {
+        long[] prefix = new long[table.getBoroughCount() * stride];
+        int[] epochDays = table.getEpochDayColumn();
+        for (int row = 0; row < table.size(); row++) {
+            prefix[table.getBorough(row) * stride + epochDays[row] - firstDay + 1] += column[row];
+        }
+        for (int base = 0; base < prefix.length; base += stride) {
+            for (int d = 1; d < stride; d++) {
+                prefix[base + d] += prefix[base + d - 1];
+            }
+        }
+        return prefix;
+    }
+
+    // turns per-day counts, one run of stride cells per borough, into cumulative counts
+    private static void accumulate(int[] counts, int stride) {
+        for (int base = 0; base < counts.length; base += stride) {
+            for (int d = 1; d < stride; d++) {
+                counts[base + d] += counts[base + d - 1];
+            }
+        }
+    }
+
+    // level k holds the extreme of each run of 2^k days, built from two runs of level k - 1
+    private static int[][] sparseTable(int[] days, boolean min) {
+        int levels = 1;
+        while ((1 << levels) <= days.length) {
+            levels++;
+        }
+        int[][] table = new int[levels][];
+        table[0] = days;
+        for (int k = 1; k < levels; k++) {
+            int half = 1 << (k - 1);
+            table[k] = new int[Math.max(0, days.length - (1 << k) + 1)];
+            for (int d = 0; d < table[k].length; d++) {
+                int a = table[k - 1][d];
+                int b = table[k - 1][d + half];
+                table[k][d] = min ? Math.min(a, b) : Math.max(a, b);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * @return the epoch day of the first day covered
+     */
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    /**
+     * @return the number of days covered, from the first to the last date
+     */
+    public int getDayCount() {
+        return dayCount;
+    }
+
+    /**
+     * @return the number of real boroughs
+     */
+    public int getBoroughCount() {
+        return boroughCount;
+    }
+
+    /**
+     * @return the borough index that stands for London as a whole
+     */
+    public int allBoroughs() {
+        return boroughCount;
+    }
+
+    /**
+     * @param metric the metric to total
+     * @param borough a borough ordinal, or allBoroughs()
+     * @param fromDay the first day (inclusive)
+     * @param toDay the last day (inclusive)
+     * @return the sum of the metric over the range
+     */
+    public long sum(CovidMetric metric, int borough, long fromDay, long toDay) {
+        if (borough < 0 || borough > boroughCount || fromDay > toDay) {
+            return 0;
+        }
+        int m = metric.ordinal();
+        int from = start(fromDay);
+        int to = end(toDay);
+        if (borough == boroughCount) {
+            return londonPrefix[m][to] - londonPrefix[m][from];
+        }
+        int base = borough * (dayCount + 1);
+        if (intPrefix[m] != null) {
+            return (long) intPrefix[m][base + to] - intPrefix[m][base + from];
+        }
+        if (longPrefix[m] != null) {
+            return longPrefix[m][base + to] - longPrefix[m][base + from];
+        }
+        // a running total is not kept per borough, so add up the borough's own rows
+        RowSlice rows = table.boroughRowsBetween(borough, fromDay, toDay);
+        int[] column = table.getColumn(metric);
+        long sum = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            sum += column[rows.rowAt(i)];
+        }
+        return sum;
+    }
+
+    /**
+     * @param metric the metric to read
+     * @param borough a borough ordinal, or allBoroughs()
+     * @param epochDay the day to read
+     * @return the sum of the metric over the rows of that borough and day (0 outside the data)
+     */
+    public long sum(CovidMetric metric, int borough, long epochDay) {
+        return sum(metric, borough, epochDay, epochDay);
+    }
+
+    /**
+     * @param metric the metric to read
+     * @param borough a borough ordinal, or allBoroughs()
+     * @param epochDay the day to read
+     * @return the average of the metric over the rows of that borough and day (0 if there are none)
+     */
+    public double average(CovidMetric metric, int borough, long epochDay) {
+        long count = count(borough, epochDay, epochDay);
+        return count == 0 ? 0 : (double) sum(metric, borough, epochDay) / count;
+    }
+
+    /**
+     * @param borough a borough ordinal, or allBoroughs()
+     * @param fromDay the first day (inclusive)
+     * @param toDay the last day (inclusive)
+     * @return the number of rows in the range
+     */
+    public long count(int borough, long fromDay, long toDay) {
+        if (borough < 0 || borough > boroughCount || fromDay > toDay) {
+            return 0;
+        }
+        if (borough == boroughCount) {
+            return londonCounts[end(toDay)] - londonCounts[start(fromDay)];
+        }
+        int base = borough * (dayCount + 1);
+        return countPrefix[base + end(toDay)] - countPrefix[base + start(fromDay)];
+    }
+
+    /**
+     * Gathers the statistics of every metric over the London rows of a date range,
+     * with a few array reads per metric whatever the length of the range.
+     * @param fromDay the first day (inclusive)
+     * @param toDay the last day (inclusive)
+     * @return the statistics of the rows in the range
+     */
+    public MetricAggregator statistics(long fromDay, long toDay) {
+        int metrics = CovidMetric.count();
+        long[] sums = new long[metrics];
+        long[] squares = new long[metrics];
+        int[] mins = new int[metrics];
+        int[] maxs = new int[metrics];
+        int from = start(fromDay);
+        int to = fromDay > toDay ? from : Math.max(from, end(toDay));
+        for (int m = 0; m < metrics; m++) {
+            sums[m] = londonPrefix[m][to] - londonPrefix[m][from];
+            squares[m] = squarePrefix[m] == null ? -1 : squarePrefix[m][to] - squarePrefix[m][from];
+            if (to > from) {
+                // two overlapping runs of 2^k days cover the range
+                int k = 31 - Integer.numberOfLeadingZeros(to - from);
+                mins[m] = Math.min(minTable[m][k][from], minTable[m][k][to - (1 << k)]);
+                maxs[m] = Math.max(maxTable[m][k][from], maxTable[m][k][to - (1 << k)]);
+            }
+        }
+        return MetricAggregator.fromMoments(londonCounts[to] - londonCounts[from], sums, shifts, squares, mins, maxs);
+    }
+
+    // prefix position just before the given first day, clamped to the covered days
+    private int start(long fromDay) {
+        if (fromDay <= firstDay) {
+            return 0;
+        }
+        return (int) Math.min(dayCount, fromDay - firstDay);
+    }
+
+    // prefix position just after the given last day, clamped to the covered days
+    private int end(long toDay) {
+        if (toDay < firstDay) {
+            return 0;
+        }
+        return (int) Math.min(dayCount, toDay - firstDay + 1);
+    }
+}
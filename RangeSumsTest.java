@@ -0,0 +1,110 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// unit test to check the prefix sums and the days and ranges read from them
+class RangeSumsTest {
+
+    // mock data in format: CovidData(date, borough, retailAndRecreation, groceryAndPharmacy, parks, transitStations, workplaces, residential, newCases, totalCases, newDeaths, totalDeaths)
+    private final List<CovidData> mockData = List.of(
+        new CovidData("2022-10-13", "Hackney", -10, 0, 0, 0, 0, 0, 5, 100, 1, 10),
+        new CovidData("2022-10-13", "Camden", -30, 0, 0, 0, 0, 0, 7, 200, 0, 20),
+        new CovidData("2022-10-14", "Hackney", -20, 0, 0, 0, 0, 0, 3, 103, 2, 12),
+        new CovidData("2022-10-16", "Camden", 0, 0, 0, 0, 0, 0, 9, 209, 1, 21)
+    );
+    
+    private final long day13 = LocalDate.parse("2022-10-13").toEpochDay();
+    private final long day16 = LocalDate.parse("2022-10-16").toEpochDay();
+
+    // creates test to ensure single days read back their sums, averages and the all boroughs roll-up
+    @Test
+    public void daysMatchRows() {
+        CovidTable table = CovidTable.fromRecords(mockData);
+        RangeSums sums = RangeSums.of(table);
+        int all = sums.allBoroughs();
+        int hackney = table.indexOfBorough("Hackney");
+        
+        assertEquals(4, sums.getDayCount(), "Sums should cover every day between the first and last date");
+        assertArrayEquals(new long[]{12, 3, 0, 9}, daily(sums, CovidMetric.NEW_CASES, all), "All boroughs new cases are incorrect");
+        assertArrayEquals(new long[]{5, 3, 0, 0}, daily(sums, CovidMetric.NEW_CASES, hackney), "Hackney new cases are incorrect");
+        assertArrayEquals(new long[]{10, 12, 0, 0}, daily(sums, CovidMetric.TOTAL_DEATHS, hackney), "Hackney total deaths are incorrect");
+        assertArrayEquals(new long[]{30, 12, 0, 21}, daily(sums, CovidMetric.TOTAL_DEATHS, all), "All boroughs total deaths are incorrect");
+        assertEquals(-20.0, sums.average(CovidMetric.RETAIL_RECREATION_GMR, all, day13), 0.01, "Daily average is incorrect");
+        assertEquals(0, sums.sum(CovidMetric.NEW_CASES, -1, day13), "Unknown borough should give zero");
+        assertEquals(0, sums.sum(CovidMetric.NEW_CASES, hackney, day16 + 1), "Day after the data should give zero");
+    }
+
+    // creates test to ensure sums too large for an int are kept in longs
+    @Test
+    public void largeSumsDoNotOverflow() {
+        List<CovidData> rows = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            rows.add(new CovidData(18000 + i, "Hackney", 0, 0, 0, 0, 0, 0, Integer.MAX_VALUE, 0, 1, 0));
+        }
+        RangeSums sums = RangeSums.of(CovidTable.fromRecords(rows));
+        
+        assertEquals(5L * Integer.MAX_VALUE, sums.sum(CovidMetric.NEW_CASES, 0, 18000, 18004), "Large sum is incorrect");
+        assertEquals(Integer.MAX_VALUE, sums.sum(CovidMetric.NEW_CASES, 0, 18002), "Single day is incorrect");
+        assertEquals(5, sums.sum(CovidMetric.NEW_DEATHS, 0, 18000, 18004), "Small sum is incorrect");
+    }
+
+    // the sums of each day from the 13th to the 16th
+    private long[] daily(RangeSums sums, CovidMetric metric, int borough) {
+        long[] days = new long[(int) (day16 - day13 + 1)];
+        for (int i = 0; i < days.length; i++) {
+            days[i] = sums.sum(metric, borough, day13 + i);
+        }
+        return days;
+    }
+    
+    // creates test to ensure range totals from the prefix sums match totals of the filtered rows
+    @Test
+    public void rangeTotalsMatchRows() {
+        CovidDataset dataset = new CovidDataset(mockData);
+        RangeSums sums = dataset.getRangeSums();
+        int all = sums.allBoroughs();
+        
+        for (long from = day13 - 1; from <= day16 + 1; from++) {
+            for (long to = from; to <= day16 + 1; to++) {
+                LocalDate fromDate = LocalDate.ofEpochDay(from);
+                LocalDate toDate = LocalDate.ofEpochDay(to);
+                List<CovidData> rows = dataset.filterByDate(fromDate, toDate);
+                assertEquals(rows.size(), sums.count(all, from, to), "Row count is incorrect for " + fromDate + " - " + toDate);
+                for (CovidMetric metric : CovidMetric.values()) {
+                    assertEquals(rows.stream().mapToLong(metric::valueOf).sum(), sums.sum(metric, all, from, to), metric + " is incorrect for " + fromDate + " - " + toDate);
+                }
+            }
+        }
+    }
+
+    // creates test to ensure the statistics of a range match a one-pass aggregate of its rows
+    @Test
+    public void statisticsMatchRows() {
+        Random random = new Random(3);
+        List<CovidData> rows = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            rows.add(new CovidData(18000 + i / 10, "Borough " + i % 10, random.nextInt(200) - 100, random.nextInt(200) - 100,
+                random.nextInt(200) - 100, random.nextInt(200) - 100, random.nextInt(200) - 100, random.nextInt(50),
+                random.nextInt(500), 1_000_000_000 + random.nextInt(100000), random.nextInt(10), random.nextInt(1000)));
+        }
+        CovidDataset dataset = new CovidDataset(rows);
+        long[][] ranges = {{18000, 18030}, {17990, 18020}, {18010, 18010}, {18100, 18250}, {18000, 18199}};
+
+        for (long[] range : ranges) {
+            MetricAggregator expected = MetricAggregator.of(dataset.rowsBetween(LocalDate.ofEpochDay(range[0]), LocalDate.ofEpochDay(range[1])));
+            MetricAggregator actual = dataset.getRangeSums().statistics(range[0], range[1]);
+            assertEquals(expected.getCount(), actual.getCount(), "Count is incorrect");
+            for (CovidMetric metric : CovidMetric.values()) {
+                assertEquals(expected.getSum(metric), actual.getSum(metric), metric + " sum is incorrect");
+                assertEquals(expected.getMin(metric), actual.getMin(metric), metric + " min is incorrect");
+                assertEquals(expected.getMax(metric), actual.getMax(metric), metric + " max is incorrect");
+                assertEquals(expected.getMean(metric), actual.getMean(metric), 1e-6, metric + " mean is incorrect");
+                // total cases are around a billion with a spread of thousands, where subtracting squares would cancel
+                assertEquals(expected.getVariance(metric), actual.getVariance(metric), 1e-6 * Math.max(1, expected.getVariance(metric)), metric + " variance is incorrect");
+            }
+        }
+    }
+}
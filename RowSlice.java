@@ -0,0 +1,100 @@
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable view of some rows of a table: either a run of consecutive rows,
+ * or a run of entries in an index array that lists rows (such as the table's
+ * borough partition). Making a slice copies nothing, whatever its length.
+ */
+public final class RowSlice {
+
+    private final CovidTable table;
+    private final int[] index; // rows listed by position, or null when the slice is consecutive rows
+    private final int from; // first position (inclusive)
+    private final int to; // last position (exclusive)
+
+    /**
+     * @param table the table the rows belong to
+     * @param index an array listing rows, or null to take the table's rows directly
+     * @param from the first position of the slice (inclusive)
+     * @param to the last position of the slice (exclusive)
+     */
+    public RowSlice(CovidTable table, int[] index, int from, int to) {
+        if (from < 0 || to < from || to > (index == null ? table.size() : index.length)) {
+            throw new IndexOutOfBoundsException("Slice " + from + " to " + to);
+        }
+        this.table = table;
+        this.index = index;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * @return the table the rows belong to
+     */
+    public CovidTable getTable() {
+        return table;
+    }
+
+    /**
+     * @return the number of rows in the slice
+     */
+    public int size() {
+        return to - from;
+    }
+
+    /**
+     * @return true if the slice is a run of consecutive table rows, which can be read
+     * straight from the columns
+     */
+    public boolean isContiguous() {
+        return index == null;
+    }
+
+    /**
+     * Returns part of this slice, again without copying.
+     * @param fromPosition the first position to keep (inclusive)
+     * @param toPosition the last position to keep (exclusive)
+     * @return a slice of the same rows between those positions
+     */
+    public RowSlice slice(int fromPosition, int toPosition) {
+        if (fromPosition < 0 || toPosition < fromPosition || toPosition > to - from) {
+            throw new IndexOutOfBoundsException("Slice " + fromPosition + " to " + toPosition + " out of " + (to - from));
+        }
+        return new RowSlice(table, index, from + fromPosition, from + toPosition);
+    }
+
+    /**
+     * @param position a position in the slice
+     * @return the table row at that position
+     */
+    public int rowAt(int position) {
+        if (position < 0 || position >= to - from) {
+            throw new IndexOutOfBoundsException("Row " + position + " out of " + (to - from));
+        }
+        return index == null ? from + position : index[from + position];
+    }
+
+    /**
+     * Returns a read-only list of the rows, which are turned into CovidData objects
+     * only when they are read.
+     * @return a list view of the slice
+     */
+    public List<CovidData> asList() {
+        return new RowList();
+    }
+
+    // read-only List adapter over the slice
+    private final class RowList extends AbstractList<CovidData> implements RandomAccess {
+        @Override
+        public CovidData get(int position) {
+            return table.getRow(rowAt(position));
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.LongToDoubleFunction;
+
+/**
+ * Keeps recently computed daily series so that going back to a graph, borough or
+ * range that was shown before does not read the data again. Only the values are
+ * kept (as primitive arrays), never chart points, so a cached series can be drawn
+ * at any width. When the series take more memory than the limit, the least
+ * recently used ones are dropped.
+ *
+ * When a series is asked for over a range that overlaps the last range cached for
+ * the same data, series and borough (the date range was moved by a few days), the
+ * overlapping days are copied and only the days that entered the range are computed.
+ *
+ * The limit is given in bytes by the covid.series.cache.bytes system property,
+ * and is 8MB by default.
+ */
+public class SeriesCache {
+
+    private static final long DEFAULT_MAX_BYTES = 8L << 20;
+    private static final long ENTRY_OVERHEAD = 64; // rough size of the key, map entry and array header
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, double[]> series = new LinkedHashMap<>(16, 0.75f, true); // in access order
+    private final Map<Key, Key> latest = new HashMap<>(); // last range cached for each series, keyed without its range
+    private long bytes;
+    private long hits;
+    private long misses;
+
+    /**
+     * Create a cache with the default memory limit.
+     */
+    public SeriesCache() {
+        this(Long.getLong("covid.series.cache.bytes", DEFAULT_MAX_BYTES));
+    }
+
+    /**
+     * Create a cache with the given memory limit.
+     * @param maxBytes the most memory the cached series may take, roughly
+     */
+    public SeriesCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the cached series for a key. On a miss, the days it shares with the last
+     * cached range of the same series are copied and only the other days are computed.
+     * @param key what the series is; its range gives the days of the series
+     * @param valueOfDay computes the value of one epoch day
+     * @return the series, one value per day of the key's range (shared, so it must not be modified)
+     */
+    public double[] get(Key key, LongToDoubleFunction valueOfDay) {
+        double[] previous;
+        Key previousKey;
+        synchronized (this) {
+            double[] cached = series.get(key);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+            previousKey = latest.get(key.withoutRange());
+            previous = previousKey == null ? null : series.get(previousKey);
+        }
+        double[] values = new double[(int) Math.max(0, key.toDay - key.fromDay + 1)];
+        long overlapFrom = previous == null ? 0 : Math.max(key.fromDay, previousKey.fromDay);
+        long overlapTo = previous == null ? -1 : Math.min(key.toDay, previousKey.toDay);
+        if (overlapFrom <= overlapTo) {
+            System.arraycopy(previous, (int) (overlapFrom - previousKey.fromDay),
+                             values, (int) (overlapFrom - key.fromDay), (int) (overlapTo - overlapFrom + 1));
+        } else {
+            overlapFrom = key.toDay + 1; // nothing to reuse
+            overlapTo = key.toDay;
+        }
+        // the days before and after the reused ones
+        for (long day = key.fromDay; day < overlapFrom; day++) {
+            values[(int) (day - key.fromDay)] = valueOfDay.applyAsDouble(day);
+        }
+        for (long day = overlapTo + 1; day <= key.toDay; day++) {
+            values[(int) (day - key.fromDay)] = valueOfDay.applyAsDouble(day);
+        }
+        put(key, values);
+        return values;
+    }
+
+    // adds a series, then drops the least recently used ones until the cache fits
+    private synchronized void put(Key key, double[] values) {
+        double[] previous = series.put(key, values);
+        if (previous != null) {
+            bytes -= sizeOf(previous);
+        }
+        bytes += sizeOf(values);
+        latest.put(key.withoutRange(), key);
+        Iterator<Map.Entry<Key, double[]>> eldest = series.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Key, double[]> entry = eldest.next();
+            bytes -= sizeOf(entry.getValue());
+            latest.remove(entry.getKey().withoutRange(), entry.getKey());
+            eldest.remove();
+        }
+    }
+
+    private static long sizeOf(double[] values) {
+        return ENTRY_OVERHEAD + 8L * values.length;
+    }
+
+    /**
+     * Drops every cached series. The hit and miss counts are kept.
+     */
+    public synchronized void clear() {
+        series.clear();
+        latest.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @return the number of lookups that found a cached series
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of lookups that had to compute the series
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of cached series
+     */
+    public synchronized int size() {
+        return series.size();
+    }
+
+    /**
+     * @return the approximate memory taken by the cached series, in bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Identifies a series: which data it was read from, what it shows, for which
+     * borough and over which days.
+     */
+    public static final class Key {
+        private final Object source;
+        private final String series;
+        private final int borough;
+        private final long fromDay;
+        private final long toDay;
+
+        /**
+         * @param source the data the series is read from, compared by identity so a reloaded dataset never hits old series
+         * @param series what the series shows, such as a graph name
+         * @param borough the borough index
+         * @param fromDay the first epoch day
+         * @param toDay the last epoch day
+         */
+        public Key(Object source, String series, int borough, long fromDay, long toDay) {
+            this.source = source;
+            this.series = series;
+            this.borough = borough;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+        }
+
+        // the same series with no range, to find its last cached range
+        private Key withoutRange() {
+            return new Key(source, series, borough, 0, -1);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return source == key.source && series.equals(key.series) && borough == key.borough
+                && fromDay == key.fromDay && toDay == key.toDay;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(source), series, borough, fromDay, toDay);
+        }
+    }
+}
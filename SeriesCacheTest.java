@@ -0,0 +1,73 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+// unit test to check the series cache hits, misses and evictions
+class SeriesCacheTest {
+
+    // creates test to ensure a repeated lookup is served from the cache without recomputing
+    @Test
+    public void repeatLookupIsHit() {
+        SeriesCache cache = new SeriesCache(1 << 20);
+        Object source = new Object();
+        int[] computed = {0};
+
+        double[] first = cache.get(new SeriesCache.Key(source, "New Cases", 3, 100, 200), day -> {
+            computed[0]++;
+            return day;
+        });
+        double[] second = cache.get(new SeriesCache.Key(source, "New Cases", 3, 100, 200), day -> {
+            computed[0]++;
+            return day;
+        });
+
+        assertSame(first, second, "Cached series is incorrect");
+        assertEquals(101, computed[0], "Number of computed days is incorrect");
+        assertEquals(1, cache.getHits(), "Hit count is incorrect");
+        assertEquals(1, cache.getMisses(), "Miss count is incorrect");
+    }
+
+    // creates test to ensure a shifted range reuses the overlapping days and only computes the new ones
+    @Test
+    public void shiftedRangeComputesOnlyNewDays() {
+        SeriesCache cache = new SeriesCache(1 << 20);
+        Object source = new Object();
+        int[] computed = {0};
+
+        cache.get(new SeriesCache.Key(source, "New Cases", 0, 100, 199), day -> {
+            computed[0]++;
+            return day * 2;
+        });
+        double[] shifted = cache.get(new SeriesCache.Key(source, "New Cases", 0, 103, 202), day -> {
+            computed[0]++;
+            return day * 2;
+        });
+
+        assertEquals(103, computed[0], "Number of computed days is incorrect");
+        for (int i = 0; i < shifted.length; i++) {
+            assertEquals((103 + i) * 2, shifted[i], "Shifted series is incorrect");
+        }
+    }
+
+    // creates test to ensure the least recently used series is dropped once the cache is full
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        // room for two series of 100 values, but not three
+        SeriesCache cache = new SeriesCache(2 * (64 + 8 * 100) + 100);
+        Object source = new Object();
+        SeriesCache.Key a = new SeriesCache.Key(source, "New Cases", 0, 0, 99);
+        SeriesCache.Key b = new SeriesCache.Key(source, "New Cases", 1, 0, 99);
+        SeriesCache.Key c = new SeriesCache.Key(source, "New Cases", 2, 0, 99);
+
+        cache.get(a, day -> 0);
+        cache.get(b, day -> 0);
+        cache.get(a, day -> 0); // a is now more recent than b
+        cache.get(c, day -> 0); // drops b
+
+        assertEquals(2, cache.size(), "Number of cached series is incorrect");
+        long misses = cache.getMisses();
+        cache.get(a, day -> 0);
+        assertEquals(misses, cache.getMisses(), "Recently used series was evicted");
+        cache.get(b, day -> 0);
+        assertEquals(misses + 1, cache.getMisses(), "Least recently used series was not evicted");
+    }
+}
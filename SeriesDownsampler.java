@@ -0,0 +1,73 @@
+/**
+ * Reduces a long evenly spaced series to fewer points while keeping its shape,
+ * using the Largest-Triangle-Three-Buckets algorithm (Steinarsson, 2013).
+ * The first and last points are always kept. The points in between are split
+ * into equal buckets, and from each bucket the point that forms the largest
+ * triangle with the point kept before it and the average of the next bucket is
+ * chosen. Peaks and troughs make large triangles, so they survive where
+ * keeping every n-th point would skip them.
+ */
+public final class SeriesDownsampler {
+
+    private SeriesDownsampler() {
+    }
+
+    /**
+     * Picks the points to keep from a series whose x values are its indices.
+     * @param values the y value of every point
+     * @param maxPoints the largest number of points to keep (at least 3 to have any effect)
+     * @return the indices of the points to keep, in ascending order
+     */
+    public static int[] lttb(double[] values, int maxPoints) {
+        int length = values.length;
+        if (maxPoints >= length || maxPoints < 3) {
+            int[] all = new int[length];
+            for (int i = 0; i < length; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+
+        int[] kept = new int[maxPoints];
+        int previous = 0; // the point kept from the previous bucket
+        kept[0] = 0;
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            int start = bucketStart(bucket, length, maxPoints);
+            int end = bucketStart(bucket + 1, length, maxPoints);
+
+            // average of the next bucket (or the last point, for the final bucket)
+            int nextStart = end;
+            int nextEnd = bucket + 2 < maxPoints - 1 ? bucketStart(bucket + 2, length, maxPoints) : length;
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += i;
+                averageY += values[i];
+            }
+            int nextCount = nextEnd - nextStart;
+            averageX /= nextCount;
+            averageY /= nextCount;
+
+            // the point of this bucket forming the largest triangle (twice its area, the factor does not matter)
+            double largestArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((previous - averageX) * (values[i] - values[previous])
+                                       - (previous - i) * (averageY - values[previous]));
+                if (area > largestArea) {
+                    largestArea = area;
+                    chosen = i;
+                }
+            }
+            kept[bucket + 1] = chosen;
+            previous = chosen;
+        }
+        kept[maxPoints - 1] = length - 1;
+        return kept;
+    }
+
+    // first index of a bucket; the points between the first and the last are shared out evenly
+    private static int bucketStart(int bucket, int length, int maxPoints) {
+        return (int) ((long) bucket * (length - 2) / (maxPoints - 2)) + 1;
+    }
+}
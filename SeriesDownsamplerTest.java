@@ -0,0 +1,35 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.Arrays;
+
+// unit test to check that downsampling keeps the ends and the peaks of a series
+class SeriesDownsamplerTest {
+
+    // creates test to ensure a single-day spike is kept where stride sampling would drop it
+    @Test
+    public void keepsPeaks() {
+        double[] values = new double[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Math.sin(i / 50.0) * 10;
+        }
+        values[437] = 500; // spike
+        values[811] = -300; // dip
+        
+        int[] kept = SeriesDownsampler.lttb(values, 60);
+        
+        assertEquals(60, kept.length, "Number of points is incorrect");
+        assertEquals(0, kept[0], "First point should be kept");
+        assertEquals(values.length - 1, kept[kept.length - 1], "Last point should be kept");
+        for (int i = 1; i < kept.length; i++) {
+            assertTrue(kept[i] > kept[i - 1], "Points should be in order");
+        }
+        assertTrue(Arrays.stream(kept).anyMatch(i -> i == 437), "Spike should be kept");
+        assertTrue(Arrays.stream(kept).anyMatch(i -> i == 811), "Dip should be kept");
+    }
+    
+    // creates test to ensure short series are left as they are
+    @Test
+    public void keepsShortSeries() {
+        assertArrayEquals(new int[] {0, 1, 2, 3}, SeriesDownsampler.lttb(new double[] {4, 3, 2, 1}, 10), "Short series should not change");
+    }
+}
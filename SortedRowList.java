@@ -0,0 +1,68 @@
+import javafx.collections.ObservableListBase;
+
+/**
+ * A read-only list of a borough's rows for a TableView, shown in one of the orders
+ * kept by a BoroughRowIndex. Changing the order only points the list at another
+ * permutation and tells the table how the rows moved; nothing is sorted or copied.
+ * Rows are turned into CovidData objects only when the table asks for them, which
+ * for a virtualised TableView means only the rows on screen.
+ */
+public class SortedRowList extends ObservableListBase<CovidData> {
+
+    private final BoroughRowIndex index;
+    private final CovidData[] materialised; // rows already turned into objects, by position in the slice
+    private int[] order; // positions in the order shown
+
+    /**
+     * Creates a list in date order.
+     * @param index the rows and their sorted orders
+     */
+    public SortedRowList(BoroughRowIndex index) {
+        this.index = index;
+        this.materialised = new CovidData[index.size()];
+        this.order = index.order(null, false);
+    }
+
+    /**
+     * Shows the rows sorted by a metric.
+     * @param metric the metric to sort by, or null for date order
+     * @param descending true to show the largest values first
+     */
+    public void sortBy(CovidMetric metric, boolean descending) {
+        int[] newOrder = index.order(metric, descending);
+        if (newOrder == order) {
+            return;
+        }
+        // where each row ends up, for the permutation change the table listens to
+        int size = order.length;
+        int[] newIndexOf = new int[size];
+        for (int i = 0; i < size; i++) {
+            newIndexOf[newOrder[i]] = i;
+        }
+        int[] permutation = new int[size];
+        for (int i = 0; i < size; i++) {
+            permutation[i] = newIndexOf[order[i]];
+        }
+
+        order = newOrder;
+        beginChange();
+        nextPermutation(0, size, permutation);
+        endChange();
+    }
+
+    @Override
+    public CovidData get(int index) {
+        int position = order[index];
+        CovidData row = materialised[position];
+        if (row == null) {
+            row = this.index.getTable().getRow(this.index.rowAt(position));
+            materialised[position] = row;
+        }
+        return row;
+    }
+
+    @Override
+    public int size() {
+        return order.length;
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import javafx.collections.ListChangeListener;
+
+// unit test to check that the presorted borough rows match sorting the rows directly
+class SortedRowListTest {
+
+    // creates test to ensure every metric order, both ways, matches a stable sort of the borough's rows
+    @Test
+    public void ordersMatchComparatorSort() {
+        CovidDataset dataset = new CovidDataset(randomRows(3000, 4));
+        BoroughRowIndex index = new BoroughRowIndex(dataset.rowsOfBorough("Borough 3", null, null));
+        SortedRowList list = new SortedRowList(index);
+        List<CovidData> rows = dataset.rowsOfBorough("Borough 3", null, null).asList();
+        assertEquals(rows.size(), list.size(), "Number of rows is incorrect");
+
+        for (CovidMetric metric : CovidMetric.values()) {
+            List<CovidData> expected = new ArrayList<>(rows);
+            expected.sort(Comparator.comparingInt(metric::valueOf));
+            list.sortBy(metric, false);
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).toString(), list.get(i).toString(), metric + " order is incorrect");
+            }
+            // descending is a stable sort too, so rows with equal values stay in date order
+            List<CovidData> descending = new ArrayList<>(rows);
+            descending.sort(Comparator.comparingInt((CovidData row) -> metric.valueOf(row)).reversed());
+            list.sortBy(metric, true);
+            for (int i = 0; i < descending.size(); i++) {
+                assertEquals(descending.get(i).toString(), list.get(i).toString(), metric + " descending order is incorrect");
+            }
+        }
+        list.sortBy(null, true);
+        assertEquals(rows.get(rows.size() - 1).toString(), list.get(0).toString(), "Descending date order is incorrect");
+        list.sortBy(null, false);
+        assertEquals(rows.get(0).toString(), list.get(0).toString(), "Date order is incorrect");
+    }
+
+    // creates test to ensure re-sorting reports a permutation that moves every row to its new index
+    @Test
+    public void reportsPermutation() {
+        CovidDataset dataset = new CovidDataset(randomRows(500, 5));
+        SortedRowList list = new SortedRowList(new BoroughRowIndex(dataset.rowsOfBorough("Borough 1", null, null)));
+        List<CovidData> before = new ArrayList<>(list);
+        int[][] permutation = new int[1][];
+        list.addListener((ListChangeListener<CovidData>) change -> {
+            while (change.next()) {
+                assertTrue(change.wasPermutated(), "Change is not a permutation");
+                permutation[0] = new int[list.size()];
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    permutation[0][i] = change.getPermutation(i);
+                }
+            }
+        });
+
+        list.sortBy(CovidMetric.NEW_CASES, true);
+        for (int i = 0; i < before.size(); i++) {
+            assertSame(before.get(i), list.get(permutation[0][i]), "Permutation is incorrect");
+        }
+    }
+
+    private static List<CovidData> randomRows(int count, long seed) {
+        Random random = new Random(seed);
+        List<CovidData> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            rows.add(new CovidData(18000 + i / 10, "Borough " + i % 10, random.nextInt(200) - 100, random.nextInt(200) - 100,
+                random.nextInt(200) - 100, random.nextInt(200) - 100, random.nextInt(200) - 100, random.nextInt(50),
+                random.nextInt(500), random.nextInt(100000), random.nextInt(10), random.nextInt(1000)));
+        }
+        return rows;
+    }
+}
@@ -11,7 +11,6 @@ import javafx.scene.text.FontWeight;
 
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * @author Aïda Tadlaoui, Saruta Kittipattananon, Chen Wang and Isabella Landgrebe
@@ -24,10 +23,15 @@ public class StatisticsPanel extends BorderPane {
     private Button prevButton, nextButton;
     
     private int currentStatisticIndex = 0; // Index of the currently displayed statistic
-    private int totalDeaths;
+    private long totalDeaths;
     private double averageRetailRecreationGMR;
     private double averageGroceryPharmacyGMR;
     private long averageTotalCases;
+    private int peakDailyDeaths;
+    private int peakDailyCases;
+    private double averageNewCases;
+    private double retailRecreationDeviation;
+    private double groceryPharmacyDeviation;
     
     private VBox statisticsContainer;
     private List<VBox> statisticViews;
@@ -35,7 +39,12 @@ public class StatisticsPanel extends BorderPane {
         "Statistic 1",
         "Statistic 2",
         "Statistic 3",
-        "Statistic 4"
+        "Statistic 4",
+        "Statistic 5",
+        "Statistic 6",
+        "Statistic 7",
+        "Statistic 8",
+        "Statistic 9"
     );
     
     /**
@@ -121,9 +130,40 @@ public class StatisticsPanel extends BorderPane {
                 statLabel.setText("Average Total Cases");
                 statValue.setText(String.format("%d", averageTotalCases));
                 break;
+            case 4:
+                statLabel.setText("Most Deaths in a Borough on a Single Day");
+                statValue.setText(String.valueOf(peakDailyDeaths));
+                break;
+            case 5:
+                statLabel.setText("Most New Cases in a Borough on a Single Day");
+                statValue.setText(String.valueOf(peakDailyCases));
+                break;
+            case 6:
+                statLabel.setText("Average New Cases per Borough per Day");
+                statValue.setText(String.format("%.1f", averageNewCases));
+                break;
+            case 7:
+                statLabel.setText("Retail & Recreation Mobility Standard Deviation");
+                statValue.setText(deviationText(retailRecreationDeviation));
+                break;
+            case 8:
+                statLabel.setText("Grocery & Pharmacy Mobility Standard Deviation");
+                statValue.setText(deviationText(groceryPharmacyDeviation));
+                break;
         }
     }
 
+    /**
+     * Formats a standard deviation for display. The range sums cannot work out the
+     * deviation of a dataset whose squared values are too large to add up in a long,
+     * and leave it NaN, which is shown as "n/a".
+     * @param deviation The standard deviation, or NaN if it is not known.
+     * @return The deviation as a percentage, or "n/a".
+     */
+    static String deviationText(double deviation) {
+        return Double.isNaN(deviation) ? "n/a" : String.format("%.2f%%", deviation);
+    }
+
     /**
      * Navigates through the statistics based on the specified direction.
      * @param direction The direction of navigation: -1 for previous, 1 for next.
@@ -143,30 +183,42 @@ public class StatisticsPanel extends BorderPane {
      * @param filteredData The list of CovidData objects to calculate statistics from.
      */
     public void updateStatistics(List<CovidData> filteredData) {
-        // Implementation of statistics calculation from filtered data
-        
+        updateStatistics(MetricAggregator.of(filteredData));
+    }
+    
+    /**
+     * Updates statistics from a slice of the dataset, read straight from the table's
+     * columns so no row objects are made.
+     * @param rows The rows to calculate statistics from.
+     */
+    public void updateStatistics(RowSlice rows) {
+        updateStatistics(MetricAggregator.of(rows));
+    }
+    
+    /**
+     * Updates statistics from an aggregate of the selected rows. Every statistic is read
+     * from the same aggregate, so showing more statistics does not mean more passes over the data.
+     * @param aggregate The statistics of every metric over the selected data.
+     */
+    public void updateStatistics(MetricAggregator aggregate) {
         // Calculate the average mobility change in retail and recreation sectors
-        averageRetailRecreationGMR = filteredData.stream()
-            .mapToInt(CovidData::getRetailRecreationGMR)
-            .average()
-            .orElse(0.0);
+        averageRetailRecreationGMR = aggregate.getMean(CovidMetric.RETAIL_RECREATION_GMR);
 
         // Calculate the average mobility change in grocery and pharmacy sectors
-        averageGroceryPharmacyGMR = filteredData.stream()
-            .mapToInt(CovidData::getGroceryPharmacyGMR)
-            .average()
-            .orElse(0.0);
+        averageGroceryPharmacyGMR = aggregate.getMean(CovidMetric.GROCERY_PHARMACY_GMR);
 
         // Calculate the total number of deaths
-        totalDeaths = filteredData.stream()
-            .mapToInt(CovidData::getTotalDeaths) 
-            .sum();
+        totalDeaths = aggregate.getSum(CovidMetric.TOTAL_DEATHS);
 
         // Calculate the average of total cases
-        averageTotalCases = Math.round(filteredData.stream()
-            .mapToInt(CovidData::getTotalCases)
-            .average()
-            .orElse(0.0));
+        averageTotalCases = Math.round(aggregate.getMean(CovidMetric.TOTAL_CASES));
+        
+        // Peaks, averages and spreads of the daily figures
+        peakDailyDeaths = aggregate.getMax(CovidMetric.NEW_DEATHS);
+        peakDailyCases = aggregate.getMax(CovidMetric.NEW_CASES);
+        averageNewCases = aggregate.getMean(CovidMetric.NEW_CASES);
+        retailRecreationDeviation = aggregate.getStandardDeviation(CovidMetric.RETAIL_RECREATION_GMR);
+        groceryPharmacyDeviation = aggregate.getStandardDeviation(CovidMetric.GROCERY_PHARMACY_GMR);
             
         updateStatisticDisplay();
     }
@@ -199,9 +251,9 @@ public class StatisticsPanel extends BorderPane {
     
     /**
      * Retrieves the total number of deaths related to COVID-19.
-     * @return The total number of COVID-19 related deaths as an integer. 
+     * @return The total number of COVID-19 related deaths as a long integer. 
      */
-    public int getTotalDeaths() {
+    public long getTotalDeaths() {
         return totalDeaths;
     }
     
@@ -212,4 +264,44 @@ public class StatisticsPanel extends BorderPane {
     public long getAverageTotalCases() {
         return averageTotalCases;
     }
+    
+    /**
+     * Retrieves the highest number of new deaths recorded by one borough on one day.
+     * @return The peak daily deaths as an integer.
+     */
+    public int getPeakDailyDeaths() {
+        return peakDailyDeaths;
+    }
+    
+    /**
+     * Retrieves the highest number of new cases recorded by one borough on one day.
+     * @return The peak daily cases as an integer.
+     */
+    public int getPeakDailyCases() {
+        return peakDailyCases;
+    }
+    
+    /**
+     * Retrieves the average number of new cases per borough per day.
+     * @return The average new cases as a double.
+     */
+    public double getAverageNewCases() {
+        return averageNewCases;
+    }
+    
+    /**
+     * Retrieves the standard deviation of the retail and recreation mobility change.
+     * @return The standard deviation as a double.
+     */
+    public double getRetailRecreationDeviation() {
+        return retailRecreationDeviation;
+    }
+    
+    /**
+     * Retrieves the standard deviation of the grocery and pharmacy mobility change.
+     * @return The standard deviation as a double.
+     */
+    public double getGroceryPharmacyDeviation() {
+        return groceryPharmacyDeviation;
+    }
 }
@@ -46,4 +46,24 @@ class StatisticsPanelTest {
         assertEquals(expectedTotalDeaths, panel.getTotalDeaths(), "Total deaths are incorrect");
         assertEquals(expectedAverageTotalCases, panel.getAverageTotalCases(), "Average total cases are incorrect");
     }
+    
+    // creates test to ensure a total of deaths larger than an int can hold is shown in full
+    @Test
+    public void largeTotalDeathsAreNotCut() {
+        long[] sums = new long[CovidMetric.count()];
+        long[] squares = new long[CovidMetric.count()];
+        sums[CovidMetric.TOTAL_DEATHS.ordinal()] = 3_000_000_000L; // e.g. cumulative totals summed over thousands of regions
+        
+        panel.updateStatistics(MetricAggregator.fromMoments(1000, sums, new long[CovidMetric.count()], squares,
+                                                            new int[CovidMetric.count()], new int[CovidMetric.count()]));
+        
+        assertEquals(3_000_000_000L, panel.getTotalDeaths(), "Total deaths are incorrect");
+    }
+    
+    // creates test to ensure a standard deviation that could not be worked out is shown as n/a rather than NaN
+    @Test
+    public void unknownDeviationIsNotApplicable() {
+        assertEquals("n/a", StatisticsPanel.deviationText(Double.NaN), "Unknown deviation text is incorrect");
+        assertEquals(String.format("%.2f%%", 12.5), StatisticsPanel.deviationText(12.5), "Deviation text is incorrect");
+    }
 }
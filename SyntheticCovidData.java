@@ -0,0 +1,266 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Writes made-up Covid data in the column layout of covid_london.csv, for trying the
+ * loader, the indexes and the panels on more regions and days than London has.
+ *
+ * The output depends only on the seed and the settings, so the same settings always
+ * give the same file. Rows are written a day at a time while only a few numbers per
+ * region are kept, so files of many gigabytes take no more memory than small ones.
+ *
+ * The cases follow a number of epidemic waves. Each region follows every wave a few
+ * days early or late and more or less strongly, with fewer cases reported at weekends.
+ * Deaths follow the cases a fortnight later, at a rate that falls over the waves.
+ * Mobility drops while the cases are high. The first 33 regions are named after the
+ * London boroughs so they show on the map; the rest are called "Region n".
+ *
+ * Run with: java SyntheticCovidData file [regions] [days] [missingRate] [waves] [seed]
+ */
+public class SyntheticCovidData {
+
+    private static final String HEADER = "date,borough,retail_and_recreation,grocery_and_pharmacy,parks,"
+        + "transit_stations,workplaces,residential,new_cases,total_cases,new_deaths,total_deaths";
+    private static final int DEATH_LAG = 18; // days from a case being reported to a death being reported
+    private static final double[] WEEKDAY_REPORTING = {1.1, 1.15, 1.1, 1.05, 1.0, 0.8, 0.7}; // Monday to Sunday
+
+    private final long seed;
+    private int regions = 33;
+    private int days = 1103;
+    private LocalDate startDate = LocalDate.of(2020, 2, 3);
+    private double missingRate = 0.0;
+    private int waves = 4;
+
+    /**
+     * Creates a generator with London-sized settings: 33 regions over the 1103 days
+     * from 3 February 2020, four waves, and no missing values.
+     * @param seed the seed of the random numbers
+     */
+    public SyntheticCovidData(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * The table stores each row's borough as a short, so it can hold at most
+     * Short.MAX_VALUE + 1 (32,768) distinct regions.
+     * @param regions the number of regions, each with one row per day
+     */
+    public void setRegions(int regions) {
+        if (regions < 1) {
+            throw new IllegalArgumentException("At least one region is needed, not " + regions);
+        }
+        if (regions > Short.MAX_VALUE + 1) {
+            throw new IllegalArgumentException("At most " + (Short.MAX_VALUE + 1) + " regions fit in the table, not " + regions);
+        }
+        this.regions = regions;
+    }
+
+    /**
+     * @param days the number of days
+     */
+    public void setDays(int days) {
+        if (days < 1) {
+            throw new IllegalArgumentException("At least one day is needed, not " + days);
+        }
+        this.days = days;
+    }
+
+    /**
+     * @param startDate the date of the first day
+     */
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    /**
+     * @param missingRate the chance, from 0 to 1, that any one value is left empty
+     */
+    public void setMissingRate(double missingRate) {
+        if (!(missingRate >= 0 && missingRate <= 1)) {
+            throw new IllegalArgumentException("Missing rate must be between 0 and 1, not " + missingRate);
+        }
+        this.missingRate = missingRate;
+    }
+
+    /**
+     * @param waves the number of epidemic waves, spread evenly over the days
+     */
+    public void setWaves(int waves) {
+        if (waves < 0) {
+            throw new IllegalArgumentException("Number of waves cannot be negative: " + waves);
+        }
+        this.waves = waves;
+    }
+
+    /**
+     * @return the number of rows a file will have: one per region and day
+     */
+    public long getRowCount() {
+        return (long) regions * days;
+    }
+
+    /**
+     * Writes the data to a file.
+     * @param file the file to write
+     * @return the number of rows written
+     * @throws IOException if the file cannot be written
+     */
+    public long write(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return write(writer);
+        }
+    }
+
+    /**
+     * Writes the header and then every row, a day at a time.
+     * @param out where to write the csv text (not closed)
+     * @return the number of rows written
+     * @throws IOException if the text cannot be written
+     */
+    public long write(Writer out) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+
+        // the waves: when they peak, how wide they are and how many daily cases per 100,000 people at the peak
+        double[] peaks = new double[waves];
+        double[] widths = new double[waves];
+        double[] heights = new double[waves];
+        double highest = 1;
+        for (int w = 0; w < waves; w++) {
+            peaks[w] = days * (w + 0.5) / waves + random.nextDouble(-0.1, 0.1) * days / waves;
+            widths[w] = random.nextDouble(8, 25);
+            heights[w] = 20 * Math.exp(random.nextDouble(0, 2));
+            highest = Math.max(highest, heights[w]);
+        }
+
+        // each region: its name, population, how strongly and how late it follows the waves
+        String[] names = regionNames();
+        double[] population = new double[regions];
+        double[] strength = new double[regions];
+        double[] lag = new double[regions];
+        for (int r = 0; r < regions; r++) {
+            population[r] = random.nextDouble(1e5, 4e5);
+            strength[r] = random.nextDouble(0.6, 1.4);
+            lag[r] = random.nextDouble(-10, 10);
+        }
+        long[] totalCases = new long[regions];
+        long[] totalDeaths = new long[regions];
+        int[][] recentCases = new int[regions][DEATH_LAG]; // ring buffer of each region's last DEATH_LAG days of cases
+
+        out.write(HEADER);
+        out.write('\n');
+        StringBuilder line = new StringBuilder(128);
+        for (int day = 0; day < days; day++) {
+            LocalDate today = startDate.plusDays(day);
+            String date = today.toString();
+            double weekday = WEEKDAY_REPORTING[today.getDayOfWeek().getValue() - 1];
+            double lockdown = waveLevel(day, peaks, widths, heights) / highest; // 0 to 1, how far people stay home
+            double summer = Math.sin(2 * Math.PI * (today.getDayOfYear() - 80) / 365.0);
+            boolean weekend = weekday < 1;
+            double deathRate = 0.015 * Math.pow(0.4, waves == 0 ? 0 : (double) day / days * waves); // deaths per case fall with each wave
+
+            for (int r = 0; r < regions; r++) {
+                double incidence = waveLevel(day - lag[r], peaks, widths, heights) * strength[r] + 0.5;
+                int newCases = poisson(random, incidence * population[r] / 1e5 * weekday);
+                int slot = day % DEATH_LAG;
+                int newDeaths = poisson(random, recentCases[r][slot] * deathRate);
+                recentCases[r][slot] = newCases;
+                totalCases[r] += newCases;
+                totalDeaths[r] += newDeaths;
+
+                line.setLength(0);
+                line.append(date).append(',').append(names[r]);
+                appendValue(line, random, (int) Math.round(-10 - 65 * lockdown + (weekend ? 5 : 0) + random.nextDouble(-4, 4)));
+                appendValue(line, random, (int) Math.round(-3 - 30 * lockdown + (weekend ? -4 : 0) + random.nextDouble(-4, 4)));
+                appendValue(line, random, (int) Math.round(20 + 50 * summer - 25 * lockdown + random.nextDouble(-15, 15)));
+                appendValue(line, random, (int) Math.round(-15 - 60 * lockdown + random.nextDouble(-4, 4)));
+                appendValue(line, random, (int) Math.round(-10 - 55 * lockdown + (weekend ? 8 : 0) + random.nextDouble(-4, 4)));
+                appendValue(line, random, (int) Math.round(3 + 22 * lockdown + (weekend ? -2 : 0) + random.nextDouble(-2, 2)));
+                appendValue(line, random, newCases);
+                appendValue(line, random, totalCases[r]);
+                appendValue(line, random, newDeaths);
+                appendValue(line, random, totalDeaths[r]);
+                line.append('\n');
+                out.append(line);
+            }
+        }
+        return getRowCount();
+    }
+
+    // the region names: the London boroughs first, then "Region n"
+    private String[] regionNames() {
+        String[] london = BoroughRegistry.london().getNames();
+        String[] names = new String[regions];
+        for (int r = 0; r < regions; r++) {
+            names[r] = r < london.length ? london[r] : "Region " + (r + 1);
+        }
+        return names;
+    }
+
+    // daily cases per 100,000 people on a day, summed over the waves; each wave rises and falls as sech squared
+    private static double waveLevel(double day, double[] peaks, double[] widths, double[] heights) {
+        double level = 0;
+        for (int w = 0; w < peaks.length; w++) {
+            double cosh = Math.cosh((day - peaks[w]) / widths[w]);
+            level += heights[w] / (cosh * cosh);
+        }
+        return level;
+    }
+
+    // adds a comma and the value, or only the comma if the value is to be missing
+    private void appendValue(StringBuilder line, SplittableRandom random, long value) {
+        line.append(',');
+        if (missingRate == 0 || random.nextDouble() >= missingRate) {
+            line.append(value);
+        }
+    }
+
+    // a Poisson-distributed count; large means use the normal approximation
+    private static int poisson(SplittableRandom random, double mean) {
+        if (mean <= 0) {
+            return 0;
+        }
+        if (mean > 30) {
+            double normal = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+            return (int) Math.max(0, Math.round(mean + Math.sqrt(mean) * normal));
+        }
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+        int count = 0;
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+        return count;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("Usage: java SyntheticCovidData file [regions] [days] [missingRate] [waves] [seed]");
+            return;
+        }
+        SyntheticCovidData generator = new SyntheticCovidData(args.length > 5 ? Long.parseLong(args[5]) : 1);
+        if (args.length > 1) {
+            generator.setRegions(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            generator.setDays(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            generator.setMissingRate(Double.parseDouble(args[3]));
+        }
+        if (args.length > 4) {
+            generator.setWaves(Integer.parseInt(args[4]));
+        }
+        Path file = Paths.get(args[0]);
+        long start = System.nanoTime();
+        long rows = generator.write(file);
+        System.out.printf("%d rows, %.1f MB in %.1f s%n", rows, Files.size(file) / (1024.0 * 1024.0), (System.nanoTime() - start) / 1e9);
+    }
+}
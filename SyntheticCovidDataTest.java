@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+// unit test to check that the synthetic data is repeatable and loads like the real csv file
+class SyntheticCovidDataTest {
+
+    @TempDir
+    Path folder;
+
+    // creates test to ensure the same seed and settings always write the same file, and another seed does not
+    @Test
+    public void sameSeedSameFile() throws Exception {
+        assertEquals(text(7, 0.1), text(7, 0.1), "Same seed should give the same file");
+        assertNotEquals(text(7, 0.1), text(8, 0.1), "Different seeds should give different files");
+    }
+
+    // creates test to ensure the file loads with one row per region and day, and totals that add up the daily figures
+    @Test
+    public void loadsAsTable() throws Exception {
+        SyntheticCovidData generator = new SyntheticCovidData(3);
+        generator.setRegions(50);
+        generator.setDays(120);
+        Path csv = folder.resolve("synthetic.csv");
+        generator.write(csv);
+        CovidDataset dataset = new CovidDataset(new CovidDataLoader(csv).parseTable(csv));
+
+        assertEquals(50 * 120, dataset.size(), "Number of rows is incorrect");
+        assertEquals(50, dataset.getTable().getBoroughCount(), "Number of regions is incorrect");
+        assertEquals(120, dataset.getDates().size(), "Number of days is incorrect");
+        assertEquals("HACK", dataset.getTable().getBoroughRegistry().getPolygonKey(dataset.getTable().indexOfBorough("Hackney")), "London regions should be on the map");
+        assertTrue(dataset.getTable().indexOfBorough("Region 50") >= 0, "Regions after London should be numbered");
+
+        int region = dataset.getTable().indexOfBorough("Region 40");
+        long newCases = 0;
+        for (CovidData row : dataset.rowsOfBorough("Region 40", null, null).asList()) {
+            newCases += row.getNewCases();
+            assertEquals(newCases, row.getTotalCases(), "Total cases should add up the new cases");
+        }
+        assertTrue(dataset.getRangeSums().sum(CovidMetric.NEW_CASES, region, dataset.getRangeSums().getFirstDay() + 60) > 0, "The epidemic should have cases");
+    }
+
+    // creates test to ensure about the requested share of the values are left empty
+    @Test
+    public void leavesValuesMissing() throws Exception {
+        String csv = text(5, 0.25);
+        String[] lines = csv.split("\n");
+        long empty = 0;
+        long values = 0;
+        for (int i = 1; i < lines.length; i++) {
+            String[] fields = lines[i].split(",", -1);
+            assertEquals(12, fields.length, "Line " + i + " should have every column");
+            for (int f = 2; f < fields.length; f++) {
+                values++;
+                empty += fields[f].isEmpty() ? 1 : 0;
+            }
+        }
+        assertEquals(0.25, (double) empty / values, 0.02, "Share of missing values is incorrect");
+    }
+
+    // creates test to ensure more regions than the table can number are refused up front
+    @Test
+    public void rejectsTooManyRegions() {
+        SyntheticCovidData generator = new SyntheticCovidData(1);
+        generator.setRegions(Short.MAX_VALUE + 1);
+        assertThrows(IllegalArgumentException.class, () -> generator.setRegions(Short.MAX_VALUE + 2), "Too many regions should be refused");
+    }
+
+    private static String text(long seed, double missingRate) throws Exception {
+        SyntheticCovidData generator = new SyntheticCovidData(seed);
+        generator.setRegions(40);
+        generator.setDays(60);
+        generator.setMissingRate(missingRate);
+        StringWriter out = new StringWriter();
+        generator.write(out);
+        return out.toString();
+    }
+}
@@ -0,0 +1,139 @@
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * The frames of the map's time-lapse over a date range: the deaths of each borough
+ * polygon on the map in a window of days ending on each day, and the lowest and highest of
+ * those over every frame, so a colour means the same number throughout. Finding
+ * that scale reads every borough on every day of the range, so the frames are built
+ * off the FX thread and handed to the map ready to draw. Boroughs of the data that
+ * share a polygon are added up, as they are for the map's totals of the whole range.
+ */
+public final class TimeLapseFrames {
+
+    private final CovidDataset dataset; // the dataset the frames were built from
+    private final long fromDay; // epoch day of the first frame
+    private final long toDay; // epoch day of the last frame
+    private final int windowDays; // number of days each frame adds up
+    private final int[] boroughs; // ordinals of the boroughs that have a polygon on the map
+    private final int[] polygonOf; // index into polygonKeys of each of those boroughs
+    private final String[] polygonKeys; // distinct polygon keys of those boroughs
+    private final long min; // lowest polygon deaths over every frame
+    private final long max; // highest polygon deaths over every frame
+
+    private TimeLapseFrames(CovidDataset dataset, long fromDay, long toDay, int windowDays,
+                            int[] boroughs, int[] polygonOf, String[] polygonKeys, long min, long max) {
+        this.dataset = dataset;
+        this.fromDay = fromDay;
+        this.toDay = toDay;
+        this.windowDays = windowDays;
+        this.boroughs = boroughs;
+        this.polygonOf = polygonOf;
+        this.polygonKeys = polygonKeys;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * Builds the frames of a date range, reading each borough's deaths from the range sums.
+     * @param dataset the dataset to read
+     * @param fromDate the date of the first frame
+     * @param toDate the date of the last frame
+     * @param windowDays how many days, up to and including its own, each frame adds up
+     * @return the frames
+     */
+    public static TimeLapseFrames of(CovidDataset dataset, LocalDate fromDate, LocalDate toDate, int windowDays) {
+        BoroughRegistry registry = dataset.getTable().getBoroughRegistry();
+        int mapped = 0;
+        for (int borough = 0; borough < registry.size(); borough++) {
+            mapped += registry.getPolygonKey(borough) == null ? 0 : 1;
+        }
+        int[] boroughs = new int[mapped];
+        int[] polygonOf = new int[mapped];
+        HashMap<String, Integer> polygons = new HashMap<>(); // index of each distinct polygon key
+        for (int borough = 0, i = 0; borough < registry.size(); borough++) {
+            String polygonKey = registry.getPolygonKey(borough);
+            if (polygonKey != null) {
+                boroughs[i] = borough;
+                polygonOf[i++] = polygons.computeIfAbsent(polygonKey, key -> polygons.size());
+            }
+        }
+        String[] polygonKeys = new String[polygons.size()];
+        polygons.forEach((key, index) -> polygonKeys[index] = key);
+
+        long fromDay = fromDate.toEpochDay();
+        long toDay = toDate.toEpochDay();
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        long[] deaths = new long[polygonKeys.length];
+        for (long day = fromDay; day <= toDay; day++) {
+            fill(dataset.getRangeSums(), boroughs, polygonOf, fromDay, windowDays, day, deaths);
+            for (long value : deaths) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        return new TimeLapseFrames(dataset, fromDay, toDay, windowDays, boroughs, polygonOf, polygonKeys, min, max);
+    }
+
+    /**
+     * Fills in the deaths of each polygon on the map over the window ending on a day,
+     * in constant time per borough.
+     * @param lastDay the epoch day of the frame
+     * @param deaths where to put the deaths, one per polygon on the map
+     */
+    public void deaths(long lastDay, long[] deaths) {
+        fill(dataset.getRangeSums(), boroughs, polygonOf, fromDay, windowDays, lastDay, deaths);
+    }
+
+    // the deaths of each polygon over the window ending on lastDay, not reaching back before fromDay
+    private static void fill(RangeSums sums, int[] boroughs, int[] polygonOf, long fromDay, int windowDays, long lastDay, long[] deaths) {
+        long firstDay = Math.max(fromDay, lastDay - windowDays + 1);
+        Arrays.fill(deaths, 0);
+        for (int i = 0; i < boroughs.length; i++) {
+            deaths[polygonOf[i]] += sums.sum(CovidMetric.NEW_DEATHS, boroughs[i], firstDay, lastDay);
+        }
+    }
+
+    /**
+     * @param dataset the dataset the map shows
+     * @param fromDate the first date the map shows
+     * @param toDate the last date the map shows
+     * @param windowDays the window the map uses
+     * @return true if these frames were built for exactly that
+     */
+    public boolean matches(CovidDataset dataset, LocalDate fromDate, LocalDate toDate, int windowDays) {
+        return this.dataset == dataset && fromDay == fromDate.toEpochDay() && toDay == toDate.toEpochDay()
+            && this.windowDays == windowDays;
+    }
+
+    /**
+     * @return the number of polygons on the map
+     */
+    public int size() {
+        return boroughs.length;
+    }
+
+    /**
+     * @param i a polygon on the map, from 0 to size() - 1
+     * @return its key
+     */
+    public String getPolygonKey(int i) {
+        return polygonKeys[i];
+    }
+
+    /**
+     * @return the lowest polygon deaths over every frame
+     */
+    public long getMin() {
+        return min;
+    }
+
+    /**
+     * @return the highest polygon deaths over every frame
+     */
+    public long getMax() {
+        return max;
+    }
+}
@@ -0,0 +1,343 @@
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.application.Platform;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * Draws daily time series as polylines straight onto a Canvas, with a numeric date axis.
+ * Unlike a LineChart there is no scene graph node per point, so a redraw costs one pass
+ * over the visible points whatever their number. When there are more points than pixels,
+ * each pixel column is drawn from the first, lowest, highest and last value that fall in
+ * it, which looks the same as drawing every point.
+ *
+ * Drag with the mouse to pan, scroll to zoom around the pointer and double-click to show
+ * the whole series again.
+ */
+public class TimeSeriesCanvas extends Pane {
+
+    private static final double LEFT = 70, RIGHT = 20, TOP = 40, BOTTOM = 45; // margins around the plot area
+    private static final double MIN_LABEL_GAP = 90; // pixels between date labels
+    private static final double MIN_VISIBLE_DAYS = 7; // zooming in stops at one week
+    private static final Color[] PALETTE = {
+        Color.web("#f3622d"), Color.web("#fba71b"), Color.web("#57b757"), Color.web("#41a9c9"), Color.web("#4258c9")
+    };
+    private static final long[] DAY_STEPS = {1, 2, 7, 14, 30, 61, 91, 182, 365, 730}; // spacing of date labels, in days
+
+    private final Canvas canvas = new Canvas();
+    private final List<Series> series = new ArrayList<>();
+    private String title = "";
+    private String yAxisLabel = "";
+    private double dataStart, dataEnd; // first and last day of all the series
+    private double viewStart, viewEnd; // first and last day shown
+    private double dragX; // pointer position of the last drag event
+    private boolean redrawPending;
+
+    /**
+     * A daily series to draw: one value per day from firstDay onwards.
+     */
+    public static final class Series {
+        private final String name;
+        private final long firstDay;
+        private final double[] values;
+
+        /**
+         * @param name the name shown in the legend
+         * @param firstDay the epoch day of the first value
+         * @param values one value per day
+         */
+        public Series(String name, long firstDay, double[] values) {
+            this.name = name;
+            this.firstDay = firstDay;
+            this.values = values;
+        }
+    }
+
+    /**
+     * Creates an empty canvas that fills whatever space it is given.
+     */
+    public TimeSeriesCanvas() {
+        canvas.setManaged(false); // sized to the pane, so it never pushes the pane's own size
+        canvas.widthProperty().bind(widthProperty());
+        canvas.heightProperty().bind(heightProperty());
+        canvas.widthProperty().addListener(observable -> requestRedraw());
+        canvas.heightProperty().addListener(observable -> requestRedraw());
+        getChildren().add(canvas);
+        setMinSize(0, 0);
+        setPrefSize(600, 400);
+
+        setOnMousePressed(event -> dragX = event.getX());
+        setOnMouseDragged(event -> {
+            double daysPerPixel = (viewEnd - viewStart) / plotWidth();
+            pan((dragX - event.getX()) * daysPerPixel);
+            dragX = event.getX();
+        });
+        setOnScroll(event -> {
+            double factor = event.getDeltaY() > 0 ? 0.8 : 1.25;
+            double anchor = viewStart + (event.getX() - LEFT) / plotWidth() * (viewEnd - viewStart);
+            zoom(factor, anchor);
+        });
+        setOnMouseClicked(event -> {
+            if (event.getButton() == MouseButton.PRIMARY && event.getClickCount() == 2) {
+                viewStart = dataStart;
+                viewEnd = dataEnd;
+                requestRedraw();
+            }
+        });
+    }
+
+    /**
+     * Replaces everything drawn with new series and shows them in full.
+     * @param title the title above the plot
+     * @param yAxisLabel the label of the value axis
+     * @param newSeries the series to draw
+     */
+    public void setSeries(String title, String yAxisLabel, List<Series> newSeries) {
+        this.title = title;
+        this.yAxisLabel = yAxisLabel;
+        series.clear();
+        series.addAll(newSeries);
+        dataStart = Double.MAX_VALUE;
+        dataEnd = -Double.MAX_VALUE;
+        for (Series s : series) {
+            if (s.values.length > 0) {
+                dataStart = Math.min(dataStart, s.firstDay);
+                dataEnd = Math.max(dataEnd, s.firstDay + s.values.length - 1);
+            }
+        }
+        if (dataStart > dataEnd) {
+            dataStart = 0;
+            dataEnd = 0;
+        }
+        viewStart = dataStart;
+        viewEnd = dataEnd;
+        requestRedraw();
+    }
+
+    // moves the view by a number of days, without leaving the data
+    private void pan(double days) {
+        double span = viewEnd - viewStart;
+        viewStart = Math.max(dataStart, Math.min(dataEnd - span, viewStart + days));
+        viewEnd = viewStart + span;
+        requestRedraw();
+    }
+
+    // scales the visible span around a day
+    private void zoom(double factor, double anchor) {
+        double span = Math.max(MIN_VISIBLE_DAYS, Math.min(dataEnd - dataStart, (viewEnd - viewStart) * factor));
+        double ratio = viewEnd > viewStart ? (anchor - viewStart) / (viewEnd - viewStart) : 0.5;
+        viewStart = Math.max(dataStart, anchor - span * ratio);
+        viewEnd = Math.min(dataEnd, viewStart + span);
+        viewStart = Math.max(dataStart, viewEnd - span);
+        requestRedraw();
+    }
+
+    // coalesces the many resize and drag events of a frame into one redraw
+    private void requestRedraw() {
+        if (!redrawPending) {
+            redrawPending = true;
+            Platform.runLater(() -> {
+                redrawPending = false;
+                draw();
+            });
+        }
+    }
+
+    private double plotWidth() {
+        return Math.max(1, canvas.getWidth() - LEFT - RIGHT);
+    }
+
+    private double plotHeight() {
+        return Math.max(1, canvas.getHeight() - TOP - BOTTOM);
+    }
+
+    /**
+     * Draws the title, axes and every series for the current size and view.
+     */
+    private void draw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        gc.clearRect(0, 0, width, height);
+        if (width <= LEFT + RIGHT || height <= TOP + BOTTOM) {
+            return;
+        }
+
+        // value range of the visible part of every series
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (Series s : series) {
+            int from = Math.max(0, (int) Math.floor(viewStart - s.firstDay));
+            int to = Math.min(s.values.length - 1, (int) Math.ceil(viewEnd - s.firstDay));
+            for (int i = from; i <= to; i++) {
+                min = Math.min(min, s.values[i]);
+                max = Math.max(max, s.values[i]);
+            }
+        }
+        if (min > max) {
+            min = 0;
+            max = 1;
+        } else if (min == max) {
+            min -= 1;
+            max += 1;
+        }
+        double step = niceStep((max - min) / 6);
+        min = Math.floor(min / step) * step;
+        max = Math.ceil(max / step) * step;
+
+        drawAxes(gc, min, max, step);
+        gc.save();
+        gc.beginPath();
+        gc.rect(LEFT, TOP, plotWidth(), plotHeight());
+        gc.clip(); // nothing is drawn outside the plot area
+        for (int i = 0; i < series.size(); i++) {
+            gc.setStroke(PALETTE[i % PALETTE.length]);
+            gc.setLineWidth(1.5);
+            drawSeries(gc, series.get(i), min, max);
+        }
+        gc.restore();
+        drawLegend(gc, width);
+    }
+
+    // draws one series, reducing it to at most four points per pixel column when it is denser than that
+    private void drawSeries(GraphicsContext gc, Series s, double min, double max) {
+        int from = Math.max(0, (int) Math.floor(viewStart - s.firstDay));
+        int to = Math.min(s.values.length - 1, (int) Math.ceil(viewEnd - s.firstDay));
+        if (from > to) {
+            return;
+        }
+        double xScale = plotWidth() / Math.max(1e-9, viewEnd - viewStart);
+        double yScale = plotHeight() / (max - min);
+        double bottom = TOP + plotHeight();
+        int visible = to - from + 1;
+
+        double[] xs;
+        double[] ys;
+        int count = 0;
+        if (visible <= plotWidth() * 2) {
+            xs = new double[visible];
+            ys = new double[visible];
+            for (int i = from; i <= to; i++) {
+                xs[count] = LEFT + (s.firstDay + i - viewStart) * xScale;
+                ys[count] = bottom - (s.values[i] - min) * yScale;
+                count++;
+            }
+        } else {
+            int columns = (int) Math.ceil(plotWidth()) + 4; // the points just outside the view get columns too
+            xs = new double[columns * 4];
+            ys = new double[columns * 4];
+            int i = from;
+            while (i <= to) {
+                int column = (int) ((s.firstDay + i - viewStart) * xScale);
+                double first = s.values[i];
+                double low = first;
+                double high = first;
+                double last = first;
+                int j = i + 1;
+                while (j <= to && (int) ((s.firstDay + j - viewStart) * xScale) == column) {
+                    last = s.values[j];
+                    low = Math.min(low, last);
+                    high = Math.max(high, last);
+                    j++;
+                }
+                double x = LEFT + column;
+                xs[count] = x;
+                ys[count++] = bottom - (first - min) * yScale;
+                xs[count] = x;
+                ys[count++] = bottom - (low - min) * yScale;
+                xs[count] = x;
+                ys[count++] = bottom - (high - min) * yScale;
+                xs[count] = x;
+                ys[count++] = bottom - (last - min) * yScale;
+                i = j;
+            }
+        }
+        gc.strokePolyline(xs, ys, count);
+    }
+
+    private void drawAxes(GraphicsContext gc, double min, double max, double step) {
+        double bottom = TOP + plotHeight();
+        double right = LEFT + plotWidth();
+        gc.setFont(Font.font(11));
+        gc.setLineWidth(1);
+
+        // value axis with grid lines
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.setTextBaseline(VPos.CENTER);
+        for (double value = min; value <= max + step / 2; value += step) {
+            double y = bottom - (value - min) / (max - min) * plotHeight();
+            gc.setStroke(Color.gray(0.9));
+            gc.strokeLine(LEFT, y, right, y);
+            gc.setFill(Color.gray(0.3));
+            gc.fillText(formatValue(value, step), LEFT - 6, y);
+        }
+
+        // date axis, with a label spacing that keeps labels apart at any zoom
+        double pixelsPerDay = plotWidth() / Math.max(1e-9, viewEnd - viewStart);
+        long dayStep = DAY_STEPS[DAY_STEPS.length - 1];
+        for (long candidate : DAY_STEPS) {
+            if (candidate * pixelsPerDay >= MIN_LABEL_GAP) {
+                dayStep = candidate;
+                break;
+            }
+        }
+        gc.setTextAlign(TextAlignment.CENTER);
+        gc.setTextBaseline(VPos.TOP);
+        for (long day = (long) Math.ceil(viewStart / dayStep) * dayStep; day <= viewEnd; day += dayStep) {
+            double x = LEFT + (day - viewStart) * pixelsPerDay;
+            gc.setStroke(Color.gray(0.6));
+            gc.strokeLine(x, bottom, x, bottom + 4);
+            gc.setFill(Color.gray(0.3));
+            gc.fillText(DateLabels.display((int) day), x, bottom + 6);
+        }
+
+        gc.setStroke(Color.gray(0.4));
+        gc.strokeLine(LEFT, bottom, right, bottom);
+        gc.strokeLine(LEFT, TOP, LEFT, bottom);
+
+        // title and axis names
+        gc.setFill(Color.BLACK);
+        gc.setFont(Font.font(16));
+        gc.setTextBaseline(VPos.CENTER);
+        gc.fillText(title, LEFT + plotWidth() / 2, TOP / 2);
+        gc.setFont(Font.font(12));
+        gc.fillText("Date", LEFT + plotWidth() / 2, bottom + BOTTOM - 12);
+        gc.save();
+        gc.translate(14, TOP + plotHeight() / 2);
+        gc.rotate(-90);
+        gc.fillText(yAxisLabel, 0, 0);
+        gc.restore();
+    }
+
+    private void drawLegend(GraphicsContext gc, double width) {
+        gc.setFont(Font.font(11));
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.setTextBaseline(VPos.CENTER);
+        double y = TOP + 10;
+        for (int i = 0; i < series.size(); i++) {
+            gc.setFill(Color.gray(0.2));
+            gc.fillText(series.get(i).name, width - RIGHT - 18, y);
+            gc.setFill(PALETTE[i % PALETTE.length]);
+            gc.fillRect(width - RIGHT - 12, y - 4, 10, 8);
+            y += 16;
+        }
+    }
+
+    // a round tick spacing (1, 2 or 5 times a power of ten) close to the raw spacing
+    private static double niceStep(double raw) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(raw)));
+        double fraction = raw / magnitude;
+        return (fraction < 1.5 ? 1 : fraction < 3.5 ? 2 : fraction < 7.5 ? 5 : 10) * magnitude;
+    }
+
+    private static String formatValue(double value, double step) {
+        return step >= 1 ? String.format("%,.0f", value) : String.format("%.2f", value);
+    }
+}
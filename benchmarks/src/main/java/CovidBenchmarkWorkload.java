@@ -0,0 +1,145 @@
+import com.opencsv.CSVReader;
+import londoncovid.benchmarks.CovidWorkload;
+import java.io.FileReader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import javafx.application.Platform;
+
+/**
+ * Calls into the application for the benchmarks. It lives in the default package so it
+ * can reach the package-private parts of the application, such as
+ * GraphPanel.computeGraph and CovidStatsApp.summariseRange.
+ */
+public class CovidBenchmarkWorkload implements CovidWorkload {
+
+    private static final int MAX_POINTS = 1000; // roughly the width of the graph in pixels
+
+    private final CovidDataLoader loader = new CovidDataLoader();
+    private CovidDataset dataset;
+    private StatisticsPanel statisticsPanel;
+
+    @Override
+    public void generate(Path csvFile, int regions, double missingRate, long seed) throws IOException {
+        SyntheticCovidData generator = new SyntheticCovidData(seed);
+        generator.setRegions(regions);
+        generator.setMissingRate(missingRate);
+        generator.write(csvFile);
+    }
+
+    @Override
+    public Object parse(Path csvFile) throws IOException {
+        return loader.parseTable(csvFile);
+    }
+
+    @Override
+    public Object parseSequential(Path csvFile) throws IOException {
+        return loader.parseTableSequential(csvFile);
+    }
+
+    @Override
+    public Object parseParallel(Path csvFile, ForkJoinPool pool) throws IOException {
+        return loader.parseTableParallel(csvFile, pool);
+    }
+
+    @Override
+    public Object parseOpenCsv(Path csvFile) throws IOException {
+        ArrayList<CovidData> records = new ArrayList<>();
+        try (CSVReader reader = new CSVReader(new FileReader(csvFile.toFile()))) {
+            reader.readNext(); // column headers
+            String[] line;
+            while ((line = reader.readNext()) != null) {
+                records.add(new CovidData(line[0], line[1], convertInt(line[2]), convertInt(line[3]),
+                    convertInt(line[4]), convertInt(line[5]), convertInt(line[6]), convertInt(line[7]),
+                    convertInt(line[8]), convertInt(line[9]), convertInt(line[10]), convertInt(line[11])));
+            }
+        }
+        return records;
+    }
+
+    // empty fields are stored as 0, as the old loader did
+    private static int convertInt(String intString) {
+        if (intString != null && !intString.trim().equals("")) {
+            return Integer.parseInt(intString);
+        }
+        return 0;
+    }
+
+    @Override
+    public Object load(Path csvFile) throws IOException {
+        return new CovidDataset(loader.parseTable(csvFile));
+    }
+
+    @Override
+    public void open(Path csvFile) throws IOException {
+        dataset = new CovidDataset(loader.parseTable(csvFile));
+        try {
+            Platform.startup(() -> {});
+        } catch (IllegalStateException e) {
+            // the toolkit is already running
+        }
+        statisticsPanel = new StatisticsPanel();
+    }
+
+    @Override
+    public LocalDate firstDate() {
+        return dataset.getDates().get(0);
+    }
+
+    @Override
+    public LocalDate lastDate() {
+        List<LocalDate> dates = dataset.getDates();
+        return dates.get(dates.size() - 1);
+    }
+
+    @Override
+    public int filterByDate(LocalDate fromDate, LocalDate toDate) {
+        return dataset.rowsBetween(fromDate, toDate).size();
+    }
+
+    @Override
+    public long readFilteredRows(LocalDate fromDate, LocalDate toDate) {
+        long newCases = 0;
+        for (CovidData row : dataset.filterByDate(fromDate, toDate)) {
+            newCases += row.getNewCases();
+        }
+        return newCases;
+    }
+
+    @Override
+    public int filterByBorough(String borough, LocalDate fromDate, LocalDate toDate) {
+        return dataset.rowsOfBorough(borough, fromDate, toDate).size();
+    }
+
+    @Override
+    public Object calculateDeathRates(LocalDate fromDate, LocalDate toDate) {
+        return CovidStatsApp.calculateDeathRates(dataset, fromDate, toDate);
+    }
+
+    @Override
+    public Object updateStatistics(LocalDate fromDate, LocalDate toDate) {
+        statisticsPanel.updateStatistics(dataset.getRangeSums().statistics(fromDate.toEpochDay(), toDate.toEpochDay()));
+        return statisticsPanel;
+    }
+
+    @Override
+    public Object updateDateRange(LocalDate fromDate, LocalDate toDate) {
+        // what CovidStatsApp.updateDateRange does on the worker thread, and then the statistics panel on the FX thread
+        CovidStatsApp.RangeSummary summary = CovidStatsApp.summariseRange(dataset, fromDate, toDate, 7); // the map's default window
+        statisticsPanel.updateStatistics(summary.statistics);
+        return summary;
+    }
+
+    @Override
+    public Object aggregateByDay() {
+        return RangeSums.of(dataset.getTable());
+    }
+
+    @Override
+    public Object graphSeries(String graph, String borough, LocalDate fromDate, LocalDate toDate) {
+        return GraphPanel.computeGraph(new SeriesCache(), dataset, graph, borough, fromDate, toDate, MAX_POINTS);
+    }
+}
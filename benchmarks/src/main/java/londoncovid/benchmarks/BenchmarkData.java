@@ -0,0 +1,45 @@
+package londoncovid.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes the csv files the benchmarks read: the bundled London data set, or synthetic
+ * data over the same days with scale times as many regions. The synthetic files always
+ * use the same seed, so every run measures the same data.
+ */
+public final class BenchmarkData {
+
+    private static final String BUNDLED_CSV = "/covid_london.csv";
+    private static final int LONDON_BOROUGHS = 33;
+    private static final double MISSING_RATE = 0.01; // about as many empty values as the real file has
+    private static final long SEED = 2020;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Writes a data set into a temporary file.
+     * @param workload the workload whose generator writes the synthetic data
+     * @param scale 1 for the London data, or how many times as many regions the synthetic data has
+     * @return the file, which the caller deletes
+     * @throws IOException if the file cannot be written
+     */
+    public static Path write(CovidWorkload workload, int scale) throws IOException {
+        Path file = Files.createTempFile("covid-benchmark-" + scale + "x", ".csv");
+        if (scale > 1) {
+            workload.generate(file, LONDON_BOROUGHS * scale, MISSING_RATE, SEED);
+            return file;
+        }
+        try (InputStream in = BenchmarkData.class.getResourceAsStream(BUNDLED_CSV)) {
+            if (in == null) {
+                throw new IOException("covid_london.csv not found on the classpath");
+            }
+            Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,160 @@
+package londoncovid.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The application code that the benchmarks measure. JMH will not generate code for
+ * benchmarks in the default package, and classes in a named package cannot refer to
+ * the application's default-package classes, so the calls are made by a
+ * default-package implementation of this interface (CovidBenchmarkWorkload) that is
+ * looked up once by name. Every method returns what it computed, so that the
+ * benchmarks can hand it to a Blackhole.
+ */
+public interface CovidWorkload {
+
+    /**
+     * @return a new workload backed by the application classes
+     */
+    static CovidWorkload create() {
+        try {
+            return (CovidWorkload) Class.forName("CovidBenchmarkWorkload").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("The application classes are not on the classpath", e);
+        }
+    }
+
+    /**
+     * Writes synthetic data with SyntheticCovidData, over the same days as the London data.
+     * @param csvFile the file to write
+     * @param regions the number of regions
+     * @param missingRate the chance that any one value is left empty
+     * @param seed the seed of the random numbers
+     * @throws IOException if the file cannot be written
+     */
+    void generate(Path csvFile, int regions, double missingRate, long seed) throws IOException;
+
+    /**
+     * Parses a csv file into a table, as the loader does when it has no snapshot.
+     * @param csvFile the file to parse
+     * @return the table
+     * @throws IOException if the file cannot be read
+     */
+    Object parse(Path csvFile) throws IOException;
+
+    /**
+     * Parses a csv file into a table on the calling thread, whatever its size.
+     * @param csvFile the file to parse
+     * @return the table
+     * @throws IOException if the file cannot be read
+     */
+    Object parseSequential(Path csvFile) throws IOException;
+
+    /**
+     * Parses a csv file into a table in chunks on the given pool, whatever its size.
+     * @param csvFile the file to parse
+     * @param pool the pool that runs the chunks, with as many threads as are measured
+     * @return the table
+     * @throws IOException if the file cannot be read
+     */
+    Object parseParallel(Path csvFile, ForkJoinPool pool) throws IOException;
+
+    /**
+     * Parses a csv file the way the loader did before it parsed the bytes itself:
+     * opencsv splits every line into strings, which become a list of CovidData rows.
+     * @param csvFile the file to parse
+     * @return the rows
+     * @throws IOException if the file cannot be read
+     */
+    Object parseOpenCsv(Path csvFile) throws IOException;
+
+    /**
+     * Parses a csv file and builds the dataset the panels read (table and range sums).
+     * @param csvFile the file to parse
+     * @return the dataset
+     * @throws IOException if the file cannot be read
+     */
+    Object load(Path csvFile) throws IOException;
+
+    /**
+     * Loads a csv file as the dataset that the query methods below read, and starts
+     * the JavaFX toolkit for the panels.
+     * @param csvFile the file to load
+     * @throws IOException if the file cannot be read
+     */
+    void open(Path csvFile) throws IOException;
+
+    /**
+     * @return the first date of the open dataset
+     */
+    LocalDate firstDate();
+
+    /**
+     * @return the last date of the open dataset
+     */
+    LocalDate lastDate();
+
+    /**
+     * @param fromDate the first date to include
+     * @param toDate the last date to include
+     * @return the number of rows between the dates
+     */
+    int filterByDate(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Filters the rows between two dates and reads every one of them as a CovidData object.
+     * @param fromDate the first date to include
+     * @param toDate the last date to include
+     * @return the total of the new cases of the rows
+     */
+    long readFilteredRows(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * @param borough the borough name
+     * @param fromDate the first date to include
+     * @param toDate the last date to include
+     * @return the number of rows of the borough between the dates
+     */
+    int filterByBorough(String borough, LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * @param fromDate the first date to include
+     * @param toDate the last date to include
+     * @return the deaths of each borough between the dates, by polygon key
+     */
+    Object calculateDeathRates(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Fills the statistics panel from the range sums between two dates.
+     * @param fromDate the first date to include
+     * @param toDate the last date to include
+     * @return the panel
+     */
+    Object updateStatistics(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * Does what the application does when the user picks a date range: the death
+     * totals of the map and the statistics, then the statistics panel.
+     * @param fromDate the first date to include
+     * @param toDate the last date to include
+     * @return the totals and statistics of the range
+     */
+    Object updateDateRange(LocalDate fromDate, LocalDate toDate);
+
+    /**
+     * @return the range sums that the graphs and the range totals are read from, built again
+     */
+    Object aggregateByDay();
+
+    /**
+     * Builds a graph series from scratch, without the series cache.
+     * @param graph the graph type, as listed in the graph panel
+     * @param borough the borough name, or "All Boroughs"
+     * @param fromDate the first date to include
+     * @param toDate the last date to include
+     * @return the graph, downsampled for drawing
+     */
+    Object graphSeries(String graph, String borough, LocalDate fromDate, LocalDate toDate);
+}
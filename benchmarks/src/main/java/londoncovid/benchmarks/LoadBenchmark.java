@@ -0,0 +1,60 @@
+package londoncovid.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures loading the csv file: parsing it into a table, and parsing it and building
+ * the dataset (table and range sums) that the panels read. The snapshot
+ * cache is not used, so every operation reads the csv file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class LoadBenchmark {
+
+    @Param({"1", "10", "100"})
+    public int scale; // 1 for the London data, or how many times as many regions the synthetic data has
+
+    private CovidWorkload workload;
+    private Path csvFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workload = CovidWorkload.create();
+        csvFile = BenchmarkData.write(workload, scale);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(csvFile);
+    }
+
+    @Benchmark
+    public Object parse() throws IOException {
+        return workload.parse(csvFile);
+    }
+
+    @Benchmark
+    public Object load() throws IOException {
+        return workload.load(csvFile);
+    }
+}
@@ -0,0 +1,93 @@
+package londoncovid.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the ways of parsing the synthetic csv files: with opencsv, as the loader
+ * used to; on one thread; and in chunks on a fork-join pool of 1, 2, 4 or as many
+ * threads as the machine has cores. Unlike LoadBenchmark, which lets the loader
+ * choose, every file is parsed every way, so the sequential time can be read against
+ * the opencsv one, and the parallel times against the sequential one to see how
+ * parsing scales. Only the parallel parse depends on the pool, so the others are
+ * run once per file.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class ParseBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Data {
+
+        @Param({"10", "100"})
+        public int scale; // how many times as many regions as London the synthetic data has
+
+        CovidWorkload workload;
+        Path csvFile;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            workload = CovidWorkload.create();
+            csvFile = BenchmarkData.write(workload, scale);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.deleteIfExists(csvFile);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pool {
+
+        @Param({"1", "2", "4", "max"})
+        public String threads; // parallelism of the pool, or max for one thread per core
+
+        ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            int parallelism = threads.equals("max") ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(threads);
+            pool = new ForkJoinPool(parallelism);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    public Object parseOpenCsv(Data data) throws IOException {
+        return data.workload.parseOpenCsv(data.csvFile);
+    }
+
+    @Benchmark
+    public Object parseSequential(Data data) throws IOException {
+        return data.workload.parseSequential(data.csvFile);
+    }
+
+    @Benchmark
+    public Object parseParallel(Data data, Pool pool) throws IOException {
+        return data.workload.parseParallel(data.csvFile, pool.pool);
+    }
+}
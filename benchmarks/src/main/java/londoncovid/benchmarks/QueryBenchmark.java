@@ -0,0 +1,104 @@
+package londoncovid.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what happens when the user picks a date range: the whole update as the
+ * application does it, and its parts (the death totals of the map, the statistics
+ * panel), as well as filtering the rows and building the range sums behind the
+ * graphs. The range is the middle half of the data, and the borough Westminster.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class QueryBenchmark {
+
+    private static final String BOROUGH = "Westminster";
+    private static final String GRAPH = "New Cases Over Time";
+
+    @Param({"1", "10", "100"})
+    public int scale; // 1 for the London data, or how many times as many regions the synthetic data has
+
+    private CovidWorkload workload;
+    private LocalDate fromDate;
+    private LocalDate toDate;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        workload = CovidWorkload.create();
+        Path csvFile = BenchmarkData.write(workload, scale);
+        try {
+            workload.open(csvFile);
+        } finally {
+            Files.deleteIfExists(csvFile);
+        }
+        long first = workload.firstDate().toEpochDay();
+        long days = workload.lastDate().toEpochDay() - first + 1;
+        fromDate = LocalDate.ofEpochDay(first + days / 4);
+        toDate = LocalDate.ofEpochDay(first + days * 3 / 4);
+    }
+
+    @Benchmark
+    public int filterByDate() {
+        return workload.filterByDate(fromDate, toDate);
+    }
+
+    @Benchmark
+    public long readFilteredRows() {
+        return workload.readFilteredRows(fromDate, toDate);
+    }
+
+    @Benchmark
+    public int filterByBorough() {
+        return workload.filterByBorough(BOROUGH, fromDate, toDate);
+    }
+
+    @Benchmark
+    public Object updateDateRange() {
+        return workload.updateDateRange(fromDate, toDate);
+    }
+
+    @Benchmark
+    public Object calculateDeathRates() {
+        return workload.calculateDeathRates(fromDate, toDate);
+    }
+
+    @Benchmark
+    public Object updateStatistics() {
+        return workload.updateStatistics(fromDate, toDate);
+    }
+
+    @Benchmark
+    public Object aggregateByDay() {
+        return workload.aggregateByDay();
+    }
+
+    @Benchmark
+    public Object graphAllBoroughs() {
+        return workload.graphSeries(GRAPH, "All Boroughs", fromDate, toDate);
+    }
+
+    @Benchmark
+    public Object graphOneBorough() {
+        return workload.graphSeries(GRAPH, BOROUGH, fromDate, toDate);
+    }
+}